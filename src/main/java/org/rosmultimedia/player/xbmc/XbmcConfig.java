@@ -8,6 +8,8 @@
  */
 package org.rosmultimedia.player.xbmc;
 
+import java.io.File;
+
 import org.ros.node.ConnectedNode;
 import org.rosbuilding.common.NodeConfig;
 
@@ -22,6 +24,22 @@ public class XbmcConfig extends NodeConfig {
     private int    port;
     private String user;
     private String password;
+    private int    tcpPort;
+    private boolean tcpCalls;
+
+    private int    artworkPort;
+    private String artworkHost;
+    private String artworkCache;
+    private int    artworkMemory;
+    private int    artworkDisk;
+    private int    artworkPrefetch;
+
+    private String snapshot;
+    private int    snapshotInterval;
+
+    private int    filesParallelism;
+    private int    filesTtl;
+    private int    filesCache;
 
     public XbmcConfig(ConnectedNode connectedNode) {
         super(connectedNode, "home/salon/xbmc", "fixed_frame", 1);
@@ -39,6 +57,44 @@ public class XbmcConfig extends NodeConfig {
                 .getString("~user", "xbmc");
         this.password = this.connectedNode.getParameterTree()
                 .getString("~password", "xbmc");
+        // TCP json-rpc port for notifications, disabled when 0.
+        this.tcpPort = this.connectedNode.getParameterTree()
+                .getInteger("~tcp_port", 9090);
+        // Send calls on the TCP connection, http when it is down.
+        this.tcpCalls = this.connectedNode.getParameterTree()
+                .getBoolean("~tcp_calls", false);
+
+        // Artwork proxy, disabled when port is 0. Memory and disk sizes in MB.
+        // Default cache is named after the node, distinct for each host.
+        this.artworkPort = this.connectedNode.getParameterTree()
+                .getInteger("~artwork_port", 0);
+        this.artworkHost = this.connectedNode.getParameterTree()
+                .getString("~artwork_host", "");
+        this.artworkCache = this.connectedNode.getParameterTree()
+                .getString("~artwork_cache",
+                        new File(System.getProperty("java.io.tmpdir"), "xbmc_artwork"
+                                + this.connectedNode.getName().toString().replaceAll("[^A-Za-z0-9]", "_"))
+                                .getPath());
+        this.artworkMemory = this.connectedNode.getParameterTree()
+                .getInteger("~artwork_memory", 16);
+        this.artworkDisk = this.connectedNode.getParameterTree()
+                .getInteger("~artwork_disk", 256);
+        this.artworkPrefetch = this.connectedNode.getParameterTree()
+                .getInteger("~artwork_prefetch", 20);
+
+        // Library snapshot, disabled by default (empty path). Interval in seconds.
+        this.snapshot = this.connectedNode.getParameterTree()
+                .getString("~snapshot", "");
+        this.snapshotInterval = this.connectedNode.getParameterTree()
+                .getInteger("~snapshot_interval", 300);
+
+        // File browser. Ttl in seconds, cache size in files.
+        this.filesParallelism = this.connectedNode.getParameterTree()
+                .getInteger("~files_parallelism", 4);
+        this.filesTtl = this.connectedNode.getParameterTree()
+                .getInteger("~files_ttl", 60);
+        this.filesCache = this.connectedNode.getParameterTree()
+                .getInteger("~files_cache", 20000);
 
 //        this.logI(
 //                String.format("rate : %s\nprefix : %s\nfixedFrame : %s\nip : %s\nmac : %s\nport : %s\nuser : %s\npassword : %s",
@@ -67,4 +123,56 @@ public class XbmcConfig extends NodeConfig {
     public String getPassword() {
         return this.password;
     }
+
+    public int getTcpPort() {
+        return this.tcpPort;
+    }
+
+    public boolean isTcpCalls() {
+        return this.tcpCalls;
+    }
+
+    public int getArtworkPort() {
+        return this.artworkPort;
+    }
+
+    public String getArtworkHost() {
+        return this.artworkHost;
+    }
+
+    public String getArtworkCache() {
+        return this.artworkCache;
+    }
+
+    public int getArtworkMemory() {
+        return this.artworkMemory;
+    }
+
+    public int getArtworkDisk() {
+        return this.artworkDisk;
+    }
+
+    public int getArtworkPrefetch() {
+        return this.artworkPrefetch;
+    }
+
+    public String getSnapshot() {
+        return this.snapshot;
+    }
+
+    public int getSnapshotInterval() {
+        return this.snapshotInterval;
+    }
+
+    public int getFilesParallelism() {
+        return this.filesParallelism;
+    }
+
+    public int getFilesTtl() {
+        return this.filesTtl;
+    }
+
+    public int getFilesCache() {
+        return this.filesCache;
+    }
 }
@@ -0,0 +1,144 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ros.namespace.GraphName;
+import org.ros.node.AbstractNodeMain;
+import org.ros.node.ConnectedNode;
+import org.ros.node.DefaultNodeMainExecutor;
+import org.ros.node.Node;
+import org.ros.node.NodeConfiguration;
+import org.ros.node.NodeMainExecutor;
+import org.ros.node.parameter.ParameterTree;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+
+/**
+ * Xbmc ROS Node of several xbmc hosts, in a single process.
+ *
+ * Hosts are named by the "~hosts" parameter (list, or names separated by
+ * commas). Each host runs an {@link XbmcNode} named after the host under
+ * this node, so that its parameters (ip, port, prefix...) are read in its
+ * own namespace, and its state and services are published with its own
+ * prefix. Hosts share the scheduler of background tasks, the http
+ * connections and the string pool of decoded models.
+ *
+ * Files of a host (artwork cache, library snapshot) can not be shared : the
+ * node does not start when two hosts are configured with the same path.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcMultiNode extends AbstractNodeMain {
+
+    private NodeMainExecutor executor;
+    private final List<XbmcNode> nodes = new ArrayList<XbmcNode>();
+
+    @Override
+    public GraphName getDefaultNodeName() {
+        return GraphName.of("xbmc");
+    }
+
+    @Override
+    public void onStart(ConnectedNode connectedNode) {
+        List<String> hosts = getHosts(connectedNode);
+        checkPaths(connectedNode, hosts);
+
+        this.executor = DefaultNodeMainExecutor.newDefault();
+
+        for (String host : hosts) {
+            NodeConfiguration configuration = NodeConfiguration.newPublic(
+                    connectedNode.getUri().getHost(),
+                    connectedNode.getMasterUri());
+            configuration.setNodeName(connectedNode.getName().join(host));
+
+            XbmcNode node = new XbmcNode();
+            this.nodes.add(node);
+            this.executor.execute(node, configuration);
+        }
+    }
+
+    @Override
+    public void onShutdown(Node node) {
+        if (this.executor != null) {
+            for (XbmcNode xbmcNode : this.nodes) {
+                this.executor.shutdownNodeMain(xbmcNode);
+            }
+
+            this.executor.shutdown();
+        }
+
+        this.nodes.clear();
+    }
+
+    /**
+     * Check that hosts do not share files.
+     * @param connectedNode Node with the parameters of hosts
+     * @param hosts Names of the hosts
+     * @throws IllegalArgumentException if two hosts have the same artwork
+     * cache or library snapshot
+     */
+    private static void checkPaths(ConnectedNode connectedNode, List<String> hosts) {
+        Map<String, String> paths = new HashMap<String, String>();
+        ParameterTree parameters = connectedNode.getParameterTree();
+
+        for (String host : hosts) {
+            List<String> files = new ArrayList<String>();
+            files.add(parameters.getString("~" + host + "/snapshot", ""));
+
+            if (parameters.getInteger("~" + host + "/artwork_port", 0) > 0) {
+                files.add(parameters.getString("~" + host + "/artwork_cache", ""));
+            }
+
+            for (String file : files) {
+                if (!Strings.isNullOrEmpty(file)) {
+                    String path = new File(file).getAbsolutePath();
+                    String previous = paths.put(path, host);
+
+                    if (previous != null) {
+                        throw new IllegalArgumentException(String.format(
+                                "Hosts %s and %s share %s", previous, host, path));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param connectedNode Node with the hosts parameter
+     * @return Names of the hosts
+     */
+    private static List<String> getHosts(ConnectedNode connectedNode) {
+        List<String> result = new ArrayList<String>();
+        List<?> hosts;
+
+        try {
+            hosts = connectedNode.getParameterTree().getList("~hosts", new ArrayList<String>());
+        } catch (ClassCastException e) {
+            hosts = Lists.newArrayList(Splitter.on(',').trimResults().omitEmptyStrings().split(
+                    connectedNode.getParameterTree().getString("~hosts", "")));
+        }
+
+        for (Object host : hosts) {
+            if (host != null && !Strings.isNullOrEmpty(host.toString().trim())) {
+                result.add(host.toString().trim());
+            }
+        }
+
+        return result;
+    }
+}
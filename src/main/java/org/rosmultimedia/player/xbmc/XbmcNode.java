@@ -8,21 +8,55 @@
  */
 package org.rosmultimedia.player.xbmc;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import org.ros.exception.ServiceException;
 import org.ros.node.ConnectedNode;
 import org.ros.node.Node;
 import org.ros.node.service.ServiceResponseBuilder;
+import org.ros.node.topic.Publisher;
 import org.rosbuilding.common.BaseNodeMain;
 import org.rosbuilding.common.media.MediaMessageConverter;
 import org.rosbuilding.common.media.MediaStateDataComparator;
+import org.rosmultimedia.player.xbmc.internal.XbmcActivePlayers;
+import org.rosmultimedia.player.xbmc.internal.XbmcCommandBatch;
+import org.rosmultimedia.player.xbmc.internal.XbmcFiles;
+import org.rosmultimedia.player.xbmc.internal.XbmcInput;
 import org.rosmultimedia.player.xbmc.internal.XbmcLibrary;
+import org.rosmultimedia.player.xbmc.internal.XbmcLibrarySnapshot;
 import org.rosmultimedia.player.xbmc.internal.XbmcMonitor;
 import org.rosmultimedia.player.xbmc.internal.XbmcPlayer;
+import org.rosmultimedia.player.xbmc.internal.XbmcPlaylist;
+import org.rosmultimedia.player.xbmc.internal.XbmcPvr;
 import org.rosmultimedia.player.xbmc.internal.XbmcSpeaker;
 import org.rosmultimedia.player.xbmc.internal.XbmcSystem;
+import org.rosmultimedia.player.xbmc.internal.artwork.XbmcArtwork;
+import org.rosmultimedia.player.xbmc.jsonrpc.XbmcHealth;
 import org.rosmultimedia.player.xbmc.jsonrpc.XbmcJson;
+import org.rosmultimedia.player.xbmc.jsonrpc.XbmcNotifications;
+import org.xbmc.android.jsonrpc.api.AbstractModel;
 import org.xbmc.android.jsonrpc.api.call.JSONRPC.Ping;
 import org.xbmc.android.jsonrpc.api.call.JSONRPC.Version;
+import org.xbmc.android.jsonrpc.api.model.ListModel.FileItem;
+import org.xbmc.android.jsonrpc.notification.AbstractEvent;
+import org.xbmc.android.jsonrpc.notification.ApplicationEvent;
+import org.xbmc.android.jsonrpc.notification.LibraryEvent;
+import org.xbmc.android.jsonrpc.notification.NotificationObserver;
+import org.xbmc.android.jsonrpc.notification.PlayerEvent;
+import org.xbmc.android.jsonrpc.notification.PlaylistEvent;
+import org.xbmc.android.jsonrpc.notification.SystemEvent;
+
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import smarthome_media_msgs.MediaAction;
 import smarthome_media_msgs.MediaGetItem;
@@ -31,6 +65,7 @@ import smarthome_media_msgs.MediaGetItemResponse;
 import smarthome_media_msgs.MediaGetItems;
 import smarthome_media_msgs.MediaGetItemsRequest;
 import smarthome_media_msgs.MediaGetItemsResponse;
+import smarthome_media_msgs.MediaItem;
 import smarthome_media_msgs.StateData;
 import smarthome_media_msgs.ToggleMuteSpeaker;
 import smarthome_media_msgs.ToggleMuteSpeakerRequest;
@@ -47,11 +82,186 @@ public class XbmcNode extends BaseNodeMain<XbmcConfig, StateData, MediaAction> i
     public static final String SRV_MUTE_SPEAKER_TOGGLE = "speaker_mute_toggle";
     public static final String SRV_MEDIA_GET_ITEM = "get_item";
     public static final String SRV_MEDIA_GET_ITEMS = "get_items";
+    public static final String SRV_MEDIA_GET_FILES = "get_files";
+    public static final String SRV_MEDIA_GET_FACETS = "get_facets";
+    public static final String SRV_MEDIA_GET_FEED = "get_feed";
+    public static final String SRV_MEDIA_GET_MULTI = "get_multi";
+    public static final String SRV_MEDIA_RUN_BATCH = "run_batch";
+
+    /**
+     * Topic of partial file listings, published while crawling.
+     */
+    public static final String TOPIC_FILES = "files";
+
+    private static final int SCHEDULER_THREADS = 4;
+
+    /**
+     * Delay between logs of string pool statistics, in minutes.
+     */
+    private static final long POOL_STATS_PERIOD = 10;
+
+    /**
+     * Scheduler shared by the nodes of the process, see {@link XbmcMultiNode}.
+     */
+    private static ScheduledThreadPoolExecutor sharedScheduler;
+    private static int sharedSchedulerUsers;
 
     private XbmcJson xbmcJson;
 
+    /**
+     * Xbmc json-rpc notifications, null if disabled.
+     */
+    private XbmcNotifications notifications;
+
+    /**
+     * Active players, maintained from notifications.
+     */
+    private final XbmcActivePlayers activePlayers = new XbmcActivePlayers();
+
+    /**
+     * Reactions of state and caches to xbmc notifications. Notifications
+     * may come before modules are created.
+     */
+    private final NotificationObserver observer = new NotificationObserver() {
+        @Override
+        public void onPlay(PlayerEvent.Play notification) {
+            XbmcNode.this.activePlayers.onPlay(notification);
+        }
+
+        @Override
+        public void onStop(PlayerEvent.Stop notification) {
+            XbmcNode.this.activePlayers.onStop(notification);
+            this.refreshFeeds();
+        }
+
+        @Override
+        public void onWake(SystemEvent.Wake notification) {
+            XbmcNode.this.xbmcJson.getHealth().onWake();
+        }
+
+        @Override
+        public void onQuit(SystemEvent.Quit notification) {
+            XbmcNode.this.xbmcJson.getHealth().onShutdown();
+        }
+
+        @Override
+        public void onSleep(SystemEvent.Sleep notification) {
+            XbmcNode.this.xbmcJson.getHealth().onShutdown();
+        }
+
+        @Override
+        public void onLibraryUpdate(LibraryEvent.Update notification) {
+            this.invalidate(notification.type, notification.id);
+        }
+
+        @Override
+        public void onLibraryRemove(LibraryEvent.Remove notification) {
+            this.invalidate(notification.type, notification.id);
+        }
+
+        @Override
+        public void onLibraryScanFinished(LibraryEvent.ScanFinished notification) {
+            this.refreshFeeds();
+        }
+
+        @Override
+        public void onLibraryCleanFinished(LibraryEvent.CleanFinished notification) {
+            this.refreshFeeds();
+        }
+
+        @Override
+        public void onVolumeChanged(ApplicationEvent.VolumeChanged notification) {
+            XbmcSpeaker current = XbmcNode.this.speaker;
+
+            if (current != null) {
+                current.onVolumeChanged(notification.volume, notification.muted);
+            }
+        }
+
+        @Override
+        public void onPlaylistAdd(PlaylistEvent.Add notification) {
+            this.invalidatePlaylist(notification.playlistId);
+        }
+
+        @Override
+        public void onPlaylistRemove(PlaylistEvent.Remove notification) {
+            this.invalidatePlaylist(notification.playlistId);
+        }
+
+        @Override
+        public void onPlaylistClear(PlaylistEvent.Clear notification) {
+            this.invalidatePlaylist(notification.playlistId);
+        }
+
+        private void invalidate(String type, int id) {
+            XbmcLibrary current = XbmcNode.this.library;
+
+            if (current != null && type != null) {
+                current.invalidate(type, id);
+            }
+
+            this.refreshFeeds();
+        }
+
+        private void invalidatePlaylist(int playlistid) {
+            XbmcPlaylist current = XbmcNode.this.playlist;
+
+            if (current != null) {
+                current.invalidate(playlistid);
+            }
+        }
+
+        private void refreshFeeds() {
+            XbmcLibrary current = XbmcNode.this.library;
+
+            if (current != null) {
+                current.getFeeds().requestRefresh();
+            }
+        }
+    };
+
+    /**
+     * Background tasks shared by modules (prefetch, refresh...).
+     */
+    private ScheduledExecutorService scheduler;
+
+    private XbmcArtwork artwork;
+
+    /**
+     * Library snapshot file, null if disabled.
+     */
+    private File snapshot;
+
+    /**
+     * Version of the library index last saved to snapshot.
+     */
+    private long snapshotVersion = -1;
+
+    /**
+     * Background load of the snapshot.
+     */
+    private volatile Future<?> snapshotLoad;
+
+    /**
+     * Periodic tasks of this node on the shared scheduler, cancelled on
+     * shutdown.
+     */
+    private final List<ScheduledFuture<?>> tasks = new ArrayList<ScheduledFuture<?>>();
+
+    /**
+     * Library index was reconciled with xbmc since start.
+     */
+    private boolean reconciled;
+
     private XbmcLibrary library;
     private XbmcSpeaker speaker;
+    private XbmcPlayer player;
+    private XbmcCommandBatch commands;
+    private XbmcPvr pvr;
+    private XbmcPlaylist playlist;
+    private XbmcFiles files;
+    private XbmcInput input;
+    private Publisher<MediaItem> filesPublisher;
 
     public XbmcNode() {
         super("xbmc",
@@ -69,17 +279,59 @@ public class XbmcNode extends BaseNodeMain<XbmcConfig, StateData, MediaAction> i
 
     @Override
     public void onShutdown(Node node) {
+        if (AbstractModel.getStringPool() != null) {
+            this.logI(AbstractModel.getStringPool().toString());
+        }
+
+        if (this.notifications != null) {
+            this.notifications.stop();
+        }
+
+        if (this.artwork != null) {
+            this.artwork.stop();
+        }
+
+        if (this.snapshotLoad != null) {
+            this.snapshotLoad.cancel(false);
+        }
+
+        // Waits for a snapshot load in progress.
+        this.saveSnapshot();
+
+        synchronized (this.tasks) {
+            for (ScheduledFuture<?> task : this.tasks) {
+                task.cancel(false);
+            }
+
+            this.tasks.clear();
+        }
+
+        if (this.scheduler != null) {
+            releaseScheduler();
+            this.scheduler = null;
+        }
+
         super.onShutdown(node);
     }
 
     @Override
     protected void onConnected() {
         this.getStateData().setState(StateData.ENABLE);
+
+        // New session, xbmc may have been restarted or upgraded.
+        if (this.player != null) {
+            this.player.resetStaticInfo();
+        }
+
+        if (this.speaker != null) {
+            this.speaker.resetStaticInfo();
+        }
     }
 
     @Override
     protected void onDisconnected() {
         this.getStateData().setState(StateData.UNKNOWN);
+        this.activePlayers.invalidate();
     }
 
     @Override
@@ -101,14 +353,65 @@ public class XbmcNode extends BaseNodeMain<XbmcConfig, StateData, MediaAction> i
                 this.configuration.getHost(),
                 this.configuration.getPort());
 
+        XbmcHealth health = new XbmcHealth();
+        health.addListener(new XbmcHealth.Listener() {
+            @Override
+            public void onStateChanged(XbmcHealth.State previous, XbmcHealth.State state) {
+                XbmcNode.this.logI(String.format("Xbmc %s -> %s", previous, state));
+            }
+        });
+
         this.xbmcJson = new XbmcJson(
-                url, this.configuration.getUser(), this.configuration.getPassword());
+                url, this.configuration.getUser(), this.configuration.getPassword(), health);
+
+        if (this.configuration.getTcpPort() > 0) {
+            this.notifications = new XbmcNotifications(
+                    this.configuration.getHost(), this.configuration.getTcpPort(), health);
+            this.notifications.addListener(new XbmcNotifications.Listener() {
+                @Override
+                public void onNotification(AbstractEvent event) {
+                    XbmcNode.this.onNotification(event);
+                }
+            });
+            this.notifications.start();
+
+            if (this.configuration.isTcpCalls()) {
+                this.xbmcJson.setTcp(this.notifications);
+            }
+        }
 
-        this.library = new XbmcLibrary(this.xbmcJson, this);
+        this.scheduler = acquireScheduler();
+
+        if (AbstractModel.getStringPool() != null) {
+            this.addTask(this.scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    XbmcNode.this.logI(AbstractModel.getStringPool().toString());
+                }
+            }, POOL_STATS_PERIOD, POOL_STATS_PERIOD, TimeUnit.MINUTES));
+        }
+
+        this.artwork = new XbmcArtwork(this.xbmcJson, this, this.configuration);
+        this.artwork.start();
+
+        this.library = new XbmcLibrary(this.xbmcJson, this, this.artwork, this.scheduler);
+        this.loadSnapshot();
+        this.addTask(this.library.getFacets().start(this.scheduler));
+        this.addTask(this.library.getFeeds().start(this.scheduler));
         this.speaker = new XbmcSpeaker(this.xbmcJson, this);
+        this.pvr = new XbmcPvr(this.xbmcJson, this);
+        this.addTask(this.pvr.start(this.scheduler));
+        this.playlist = new XbmcPlaylist(this.xbmcJson, this);
+        this.files = new XbmcFiles(this.xbmcJson, this, this.scheduler,
+                this.configuration.getFilesParallelism(),
+                TimeUnit.SECONDS.toMillis(this.configuration.getFilesTtl()),
+                this.configuration.getFilesCache());
+        this.input = new XbmcInput(this.xbmcJson, this, this.scheduler);
+        this.player = new XbmcPlayer(this.xbmcJson, this);
+        this.commands = new XbmcCommandBatch(this.xbmcJson, this, this.player);
 
         this.addModule(new XbmcMonitor());
-        this.addModule(new XbmcPlayer(this.xbmcJson, this));
+        this.addModule(this.player);
         this.addModule(new XbmcSystem(this.xbmcJson, this));
         this.addModule(this.speaker);
     }
@@ -149,6 +452,74 @@ public class XbmcNode extends BaseNodeMain<XbmcConfig, StateData, MediaAction> i
                         XbmcNode.this.library.handleMediaGetItems(request, response);
                     }
                 });
+
+        this.getConnectedNode().newServiceServer(
+                this.configuration.getPrefix() + SRV_MEDIA_GET_FACETS,
+                MediaGetItems._TYPE,
+                new ServiceResponseBuilder<MediaGetItemsRequest, MediaGetItemsResponse>() {
+                    @Override
+                    public void build(MediaGetItemsRequest request,
+                            MediaGetItemsResponse response) throws ServiceException {
+                        XbmcNode.this.library.handleMediaGetFacets(request, response);
+                    }
+                });
+
+        this.getConnectedNode().newServiceServer(
+                this.configuration.getPrefix() + SRV_MEDIA_GET_FEED,
+                MediaGetItems._TYPE,
+                new ServiceResponseBuilder<MediaGetItemsRequest, MediaGetItemsResponse>() {
+                    @Override
+                    public void build(MediaGetItemsRequest request,
+                            MediaGetItemsResponse response) throws ServiceException {
+                        XbmcNode.this.library.getFeeds().handleMediaGetItems(request, response);
+                    }
+                });
+
+        this.getConnectedNode().newServiceServer(
+                this.configuration.getPrefix() + SRV_MEDIA_GET_MULTI,
+                MediaGetItems._TYPE,
+                new ServiceResponseBuilder<MediaGetItemsRequest, MediaGetItemsResponse>() {
+                    @Override
+                    public void build(MediaGetItemsRequest request,
+                            MediaGetItemsResponse response) throws ServiceException {
+                        XbmcNode.this.library.handleMediaGetMulti(request, response);
+                    }
+                });
+
+        this.getConnectedNode().newServiceServer(
+                this.configuration.getPrefix() + SRV_MEDIA_RUN_BATCH,
+                MediaGetItems._TYPE,
+                new ServiceResponseBuilder<MediaGetItemsRequest, MediaGetItemsResponse>() {
+                    @Override
+                    public void build(MediaGetItemsRequest request,
+                            MediaGetItemsResponse response) throws ServiceException {
+                        XbmcNode.this.commands.handleMediaGetItems(request, response);
+                    }
+                });
+
+        this.filesPublisher = this.getConnectedNode().newPublisher(
+                this.configuration.getPrefix() + TOPIC_FILES,
+                MediaItem._TYPE);
+
+        this.getConnectedNode().newServiceServer(
+                this.configuration.getPrefix() + SRV_MEDIA_GET_FILES,
+                MediaGetItems._TYPE,
+                new ServiceResponseBuilder<MediaGetItemsRequest, MediaGetItemsResponse>() {
+                    @Override
+                    public void build(MediaGetItemsRequest request,
+                            MediaGetItemsResponse response) throws ServiceException {
+                        XbmcNode.this.files.handleMediaGetItems(request, response,
+                                new XbmcFiles.Listener() {
+                                    @Override
+                                    public void onListing(String path, List<FileItem> items) {
+                                        for (FileItem item : items) {
+                                            XbmcNode.this.filesPublisher.publish(
+                                                    XbmcNode.this.files.toMediaItem(item));
+                                        }
+                                    }
+                                });
+                    }
+                });
     }
 
     @Override
@@ -180,17 +551,248 @@ public class XbmcNode extends BaseNodeMain<XbmcConfig, StateData, MediaAction> i
             }
 
             this.logI("\tConnected done.");
+
+            if (!this.reconciled) {
+                this.reconciled = true;
+                this.scheduler.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        XbmcNode.this.reconcileLibrary();
+                    }
+                });
+            }
         } else {
             this.getStateData().setState(StateData.SHUTDOWN);
 
+            // Wait for next probe of xbmc health, at most one node cycle.
+            long delay = Math.min(this.xbmcJson.getHealth().getProbeDelay(),
+                    1000 / this.configuration.getRate());
+
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    this.logE(e);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return {@link XbmcLibrary} module
+     */
+    public XbmcLibrary getLibrary() {
+        return this.library;
+    }
+
+    /**
+     * @return {@link XbmcPvr} module
+     */
+    public XbmcPvr getPvr() {
+        return this.pvr;
+    }
+
+    /**
+     * @return {@link XbmcPlaylist} editor
+     */
+    public XbmcPlaylist getPlaylist() {
+        return this.playlist;
+    }
+
+    /**
+     * @return {@link XbmcFiles} browser
+     */
+    public XbmcFiles getFiles() {
+        return this.files;
+    }
+
+    /**
+     * @return {@link XbmcInput} channel
+     */
+    public XbmcInput getInput() {
+        return this.input;
+    }
+
+    /**
+     * @return {@link XbmcArtwork} proxy
+     */
+    public XbmcArtwork getArtwork() {
+        return this.artwork;
+    }
+
+    /**
+     * @return Active players of xbmc
+     */
+    public XbmcActivePlayers getActivePlayers() {
+        return this.activePlayers;
+    }
+
+    /**
+     * @return true while xbmc notifications are received
+     */
+    public boolean isNotified() {
+        return this.notifications != null && this.notifications.isConnected();
+    }
+
+    /**
+     * @return Scheduler of background tasks
+     */
+    public ScheduledExecutorService getScheduler() {
+        return this.scheduler;
+    }
+
+    /**
+     * Handle xbmc json-rpc notification.
+     * @param event Notification
+     */
+    private void onNotification(AbstractEvent event) {
+        this.observer.onEvent(event);
+    }
+
+    /**
+     * Load library index from snapshot in background, then schedule periodic
+     * saves.
+     */
+    private void loadSnapshot() {
+        if (Strings.isNullOrEmpty(this.configuration.getSnapshot())) {
+            return;
+        }
+
+        final File file = new File(this.configuration.getSnapshot());
+
+        this.snapshotLoad = this.scheduler.submit(new Runnable() {
+            @Override
+            public void run() {
+                XbmcNode.this.readSnapshot(file);
+            }
+        });
+    }
+
+    /**
+     * Read library index from snapshot. Saves start once the snapshot is read.
+     * @param file Snapshot file
+     */
+    private synchronized void readSnapshot(File file) {
+        try {
+            long start = System.currentTimeMillis();
+            int count = XbmcLibrarySnapshot.load(file, this.library.getIndex());
+
+            this.snapshotVersion = this.library.getIndex().getVersion();
+            this.logI(String.format("Library snapshot : %d items loaded in %dms",
+                    count, System.currentTimeMillis() - start));
+        } catch (IOException e) {
+            this.logE(e);
+        }
+
+        this.snapshot = file;
+
+        int interval = this.configuration.getSnapshotInterval();
+        if (interval > 0) {
+            this.addTask(this.scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    XbmcNode.this.saveSnapshot();
+                }
+            }, interval, interval, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * @param task Periodic task of this node, cancelled on shutdown
+     */
+    private void addTask(ScheduledFuture<?> task) {
+        synchronized (this.tasks) {
+            this.tasks.add(task);
+        }
+    }
+
+    /**
+     * Save library index to snapshot if changed since last save.
+     */
+    private synchronized void saveSnapshot() {
+        if (this.snapshot == null || this.library == null) {
+            return;
+        }
+
+        long version = this.library.getIndex().getVersion();
+
+        if (version != this.snapshotVersion) {
+            try {
+                long size = XbmcLibrarySnapshot.save(this.library.getIndex(), this.snapshot);
+
+                this.snapshotVersion = version;
+                this.logI(String.format("Library snapshot : %d items saved, %dkB",
+                        this.library.getIndex().size(), size / 1024));
+            } catch (IOException e) {
+                this.logE(e);
+            }
+        }
+    }
+
+    /**
+     * Drop library items changed in xbmc while the node was stopped, and
+     * index external ids of the library.
+     */
+    private void reconcileLibrary() {
+        // Items of the snapshot are reconciled too.
+        if (this.snapshotLoad != null) {
             try {
-                Thread.sleep(10000 / this.configuration.getRate());
+                this.snapshotLoad.get();
             } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
                 this.logE(e);
             }
         }
 
-        return result;
+        long start = System.currentTimeMillis();
+        int count = this.library.reconcile();
+
+        this.logI(String.format("Library reconciled : %d items dropped in %dms",
+                count, System.currentTimeMillis() - start));
+
+        this.library.getFacets().refresh();
+        this.library.getFeeds().refresh();
+    }
+
+    /**
+     * Get the scheduler shared by nodes of the process, created by the first
+     * node. Threads are added for each node.
+     * @return Shared scheduler
+     */
+    private static synchronized ScheduledExecutorService acquireScheduler() {
+        if (sharedScheduler == null) {
+            sharedScheduler = new ScheduledThreadPoolExecutor(SCHEDULER_THREADS,
+                    new ThreadFactoryBuilder()
+                            .setDaemon(true)
+                            .setNameFormat("xbmc-%d")
+                            .build());
+        }
+
+        sharedSchedulerUsers++;
+        sharedScheduler.setCorePoolSize(
+                Math.max(SCHEDULER_THREADS, sharedSchedulerUsers * SCHEDULER_THREADS / 2));
+
+        return sharedScheduler;
+    }
+
+    /**
+     * Release the shared scheduler, stopped with its last node.
+     */
+    private static synchronized void releaseScheduler() {
+        sharedSchedulerUsers--;
+
+        if (sharedSchedulerUsers <= 0) {
+            sharedScheduler.shutdownNow();
+            sharedScheduler = null;
+            sharedSchedulerUsers = 0;
+        } else {
+            sharedScheduler.setCorePoolSize(
+                    Math.max(SCHEDULER_THREADS, sharedSchedulerUsers * SCHEDULER_THREADS / 2));
+        }
     }
 
     @Override
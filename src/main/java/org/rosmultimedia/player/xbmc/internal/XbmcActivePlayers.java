@@ -0,0 +1,210 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal;
+
+import java.util.List;
+
+import org.xbmc.android.jsonrpc.api.call.Player.GetActivePlayers.GetActivePlayersResult;
+import org.xbmc.android.jsonrpc.notification.PlayerEvent;
+
+/**
+ * Active players of xbmc (audio, video and picture), by kind.
+ *
+ * Maintained from player notifications, and reconciled with
+ * Player.GetActivePlayers when notifications may have been missed (no
+ * notification connection, unknown item type) or after a long delay. A
+ * reconciliation answered after a notification is dropped, the registry stays
+ * stale and is reconciled again.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcActivePlayers {
+    public static final String TYPE_AUDIO = "audio";
+    public static final String TYPE_VIDEO = "video";
+    public static final String TYPE_PICTURE = "picture";
+
+    /**
+     * No active player.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * Player of commands without active player (xbmc video player).
+     */
+    public static final int DEFAULT_PLAYER = 1;
+
+    /**
+     * Delay between reconciliations of a trusted registry, in ms.
+     */
+    private static final long RECONCILE_PERIOD = 60000;
+
+    /**
+     * Kinds of player, in order of priority of the main player.
+     */
+    private static final int VIDEO = 0;
+    private static final int AUDIO = 1;
+    private static final String[] TYPES = { TYPE_VIDEO, TYPE_AUDIO, TYPE_PICTURE };
+
+    private final int[] playerids = { NONE, NONE, NONE };
+    private boolean stale = true;
+    private long reconciled;
+
+    /**
+     * Version of the registry, increased on each notification.
+     */
+    private long version;
+
+    /**
+     * @return Id of the main player (video, else audio, else picture),
+     * {@link #NONE} if no player is active
+     */
+    public synchronized int getPlayerid() {
+        int result = NONE;
+
+        for (int i = 0; i < this.playerids.length && result == NONE; i++) {
+            result = this.playerids[i];
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Id of the main player, {@link #DEFAULT_PLAYER} if no player is
+     * active
+     */
+    public int getCommandPlayerid() {
+        int result = this.getPlayerid();
+        return result == NONE ? DEFAULT_PLAYER : result;
+    }
+
+    /**
+     * @param type Kind of player ({@link #TYPE_AUDIO}, {@link #TYPE_VIDEO}
+     * or {@link #TYPE_PICTURE})
+     * @return Id of the player of this kind, {@link #NONE} if not active
+     */
+    public synchronized int getPlayerid(String type) {
+        int kind = toKind(type);
+        return kind < 0 ? NONE : this.playerids[kind];
+    }
+
+    /**
+     * @return true if the registry must be reconciled before use
+     */
+    public synchronized boolean needsReconcile() {
+        return this.stale || System.currentTimeMillis() - this.reconciled > RECONCILE_PERIOD;
+    }
+
+    /**
+     * @return Version to give back to {@link #reconcile(List, long)}
+     */
+    public synchronized long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Replace active players by result of Player.GetActivePlayers.
+     * @param players Active players, null if the request failed
+     * @param version Version of the registry when the request was sent
+     */
+    public synchronized void reconcile(List<GetActivePlayersResult> players, long version) {
+        if (players == null || version != this.version) {
+            this.stale = true;
+            return;
+        }
+
+        for (int i = 0; i < this.playerids.length; i++) {
+            this.playerids[i] = NONE;
+        }
+
+        for (GetActivePlayersResult player : players) {
+            int kind = toKind(player.type);
+
+            if (kind >= 0 && player.playerid != null) {
+                this.playerids[kind] = player.playerid;
+            }
+        }
+
+        this.stale = false;
+        this.reconciled = System.currentTimeMillis();
+    }
+
+    /**
+     * Player started an item.
+     * @param event Notification
+     */
+    public synchronized void onPlay(PlayerEvent.Play event) {
+        this.version++;
+        int kind = toKind(event.data.item.type);
+
+        if (kind < 0) {
+            this.stale = true;
+        } else {
+            this.playerids[kind] = event.data.player.playerId;
+        }
+    }
+
+    /**
+     * Player stopped, notification gives the item but not the player.
+     * @param event Notification
+     */
+    public synchronized void onStop(PlayerEvent.Stop event) {
+        this.version++;
+        int kind = toKind(event.data.item.type);
+
+        if (kind < 0) {
+            this.stale = true;
+        } else {
+            this.playerids[kind] = NONE;
+        }
+    }
+
+    /**
+     * Notifications may have been missed, reconcile before next use.
+     */
+    public synchronized void invalidate() {
+        this.version++;
+        this.stale = true;
+    }
+
+    private static int toKind(String type) {
+        int result = -1;
+
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(type)) {
+                result = i;
+            }
+        }
+
+        return result;
+    }
+
+    private static int toKind(int itemType) {
+        int result;
+
+        switch (itemType) {
+        case PlayerEvent.Item.Type.MOVIE:
+        case PlayerEvent.Item.Type.EPISODE:
+        case PlayerEvent.Item.Type.MUSICVIDEO:
+            result = VIDEO;
+            break;
+
+        case PlayerEvent.Item.Type.SONG:
+            result = AUDIO;
+            break;
+
+        default:
+            // Unknown items (files, streams, pictures) may be of any player.
+            result = -1;
+            break;
+        }
+
+        return result;
+    }
+}
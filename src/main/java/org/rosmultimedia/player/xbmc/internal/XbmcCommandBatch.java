@@ -0,0 +1,233 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+import org.rosbuilding.common.media.IPlayer;
+import org.rosmultimedia.player.xbmc.XbmcNode;
+import org.rosmultimedia.player.xbmc.jsonrpc.XbmcJson;
+import org.xbmc.android.jsonrpc.api.AbstractCall;
+
+import com.google.common.base.Strings;
+
+import smarthome_media_msgs.MediaAction;
+import smarthome_media_msgs.MediaGetItemsRequest;
+import smarthome_media_msgs.MediaGetItemsResponse;
+import smarthome_media_msgs.MediaItem;
+import smarthome_media_msgs.StateData;
+
+/**
+ * Xbmc command batch.
+ *
+ * Runs an ordered list of actions (a scene : stop, clear playlist, add
+ * items, open...) with a single json-rpc batch. Actions without json-rpc
+ * translation (pvr) are run on their own, between two batches.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcCommandBatch {
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    /**
+     * Step of the batch.
+     */
+    private static final class Step {
+        private final MediaAction action;
+        private List<AbstractCall<?>> calls;
+        private boolean success;
+        private boolean batched;
+        private String error;
+
+        private Step(MediaAction action) {
+            this.action = action;
+        }
+    }
+
+    /**
+     * Xbmc node.
+     */
+    private final XbmcNode xbmcNode;
+
+    /**
+     * Xbmc json-rpc.
+     */
+    private final XbmcJson xbmcJson;
+
+    /**
+     * Xbmc player, translating actions.
+     */
+    private final XbmcPlayer player;
+
+    /**
+     * XbmcCommandBatch constructor.
+     * @param xbmcJson {@link XbmcJson} xbmc json-rpc
+     * @param node {@link XbmcNode} xbmc node
+     * @param player {@link XbmcPlayer} translating actions
+     */
+    public XbmcCommandBatch(XbmcJson xbmcJson, XbmcNode node, XbmcPlayer player) {
+        this.xbmcJson = xbmcJson;
+        this.xbmcNode = node;
+        this.player = player;
+    }
+
+    /**
+     * Run actions of request data.
+     *
+     * Request data (json) : array of actions {method, uri, type, data}, or
+     * object with this array as actions. Response has one item per action,
+     * in order, with data (json) : method, success, batched, error.
+     * @param request {@link MediaGetItemsRequest} with actions
+     * @param response {@link MediaGetItemsResponse} with result of each action
+     */
+    public void handleMediaGetItems(MediaGetItemsRequest request,
+            MediaGetItemsResponse response) {
+        this.xbmcNode.logI("Service call MediaRunBatch");
+
+        List<Step> steps = new ArrayList<Step>();
+
+        try {
+            String data = request.getItem().getData();
+
+            if (!Strings.isNullOrEmpty(data)) {
+                JsonNode node = OM.readTree(data);
+                JsonNode actions = node.isArray() ? node : node.path("actions");
+
+                for (JsonNode action : actions) {
+                    steps.add(new Step(this.toAction(action)));
+                }
+            }
+        } catch (IOException e) {
+            this.xbmcNode.logE(e);
+        }
+
+        this.run(steps);
+
+        List<MediaItem> result = new ArrayList<MediaItem>(steps.size());
+
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            ObjectNode node = OM.createObjectNode();
+            node.put("method", step.action.getMethod());
+            node.put("success", step.success);
+            node.put("batched", step.batched);
+
+            if (step.error != null) {
+                node.put("error", step.error);
+            }
+
+            MediaItem item = this.xbmcNode.getNewMessageInstance(MediaItem._TYPE);
+            item.setMediaid(i);
+            item.getMediatype().setValue(step.action.getMethod());
+            item.setData(node.toString());
+            result.add(item);
+        }
+
+        response.setItems(result);
+    }
+
+    /**
+     * Run steps in order : consecutive translated steps are sent in a single
+     * batch, other steps on their own.
+     * @param steps Steps of the batch
+     */
+    private void run(List<Step> steps) {
+        StateData stateData = this.xbmcNode.getStateData();
+        List<Step> pending = new ArrayList<Step>();
+
+        for (Step step : steps) {
+            try {
+                step.calls = this.player.toCalls(step.action, stateData);
+            } catch (RuntimeException e) {
+                // Bad action data (position, speed...).
+                step.error = e.toString();
+                continue;
+            }
+
+            if (step.calls != null) {
+                pending.add(step);
+            } else if (isStandalone(step.action.getMethod())) {
+                this.send(pending);
+                pending.clear();
+
+                try {
+                    step.success = this.player.callbackPvrAction(step.action, stateData);
+                } catch (RuntimeException e) {
+                    // Bad channel id.
+                    step.error = e.toString();
+                }
+            } else {
+                step.error = "Unsupported method";
+            }
+        }
+
+        this.send(pending);
+    }
+
+    /**
+     * Send calls of steps in a single batch.
+     * @param steps Translated steps
+     */
+    private void send(List<Step> steps) {
+        List<AbstractCall<?>> calls = new ArrayList<AbstractCall<?>>();
+
+        for (Step step : steps) {
+            calls.addAll(step.calls);
+        }
+
+        this.xbmcJson.executeBatch(calls);
+
+        for (Step step : steps) {
+            step.batched = true;
+            step.success = true;
+
+            for (AbstractCall<?> call : step.calls) {
+                step.success &= call.getResult() != null;
+            }
+        }
+
+        this.xbmcNode.getPlaylist().onExecuted(calls);
+    }
+
+    /**
+     * @param node Action (json)
+     * @return {@link MediaAction} message of the action
+     */
+    private MediaAction toAction(JsonNode node) {
+        MediaAction result = this.xbmcNode.getNewMessageInstance(MediaAction._TYPE);
+        List<String> data = new ArrayList<String>();
+
+        for (JsonNode value : node.path("data")) {
+            data.add(value.getValueAsText());
+        }
+
+        result.setMethod(Strings.nullToEmpty(node.path("method").getTextValue()));
+        result.setUri(Strings.nullToEmpty(node.path("uri").getTextValue()));
+        result.setType(Strings.nullToEmpty(node.path("type").getTextValue()));
+        result.setData(data);
+
+        return result;
+    }
+
+    /**
+     * @param method Method of an action
+     * @return true if the action is run by the player, without translation
+     */
+    private static boolean isStandalone(String method) {
+        return IPlayer.OP_OPEN.equals(method)
+                || XbmcPvr.OP_CHANNEL_UP.equals(method)
+                || XbmcPvr.OP_CHANNEL_DOWN.equals(method);
+    }
+}
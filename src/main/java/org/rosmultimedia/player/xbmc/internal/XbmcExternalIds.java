@@ -0,0 +1,185 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.rosmultimedia.player.xbmc.internal.collection.IntHashSet;
+import org.rosmultimedia.player.xbmc.internal.collection.IntObjectMap;
+
+import com.google.common.base.Strings;
+
+import smarthome_media_msgs.MediaType;
+
+/**
+ * External ids (imdb number, tvdb or other unique ids, MusicBrainz ids) of
+ * xbmc items, by media type.
+ *
+ * An item keeps its external ids, so that new ids of the item replace the
+ * previous ones. Ids are compared without case. Not thread safe, guarded by
+ * {@link XbmcLibraryIndex}.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcExternalIds {
+    /**
+     * Media types, in lookup order of an id without type.
+     */
+    private static final String[] MEDIA_TYPES = {
+        MediaType.VIDEO_MOVIE,
+        MediaType.VIDEO_TVSHOW,
+        MediaType.VIDEO_TVSHOW_EPISODE,
+        MediaType.AUDIO_ALBUM,
+        MediaType.AUDIO_SONG
+    };
+
+    /**
+     * External ids of a media type.
+     */
+    private static final class Ids {
+        private final Map<String, Integer> byExternalId = new HashMap<String, Integer>();
+        private final IntObjectMap<String[]> byId = new IntObjectMap<String[]>();
+    }
+
+    private final Map<String, Ids> types = new HashMap<String, Ids>();
+
+    public XbmcExternalIds() {
+        for (String mediaType : MEDIA_TYPES) {
+            this.types.put(mediaType, new Ids());
+        }
+    }
+
+    /**
+     * Set external ids of an item, replacing its previous ones.
+     * @param mediaType Type of the item ({@link MediaType} value)
+     * @param mediaId Id of the item
+     * @param externalIds External ids, null or empty values are ignored
+     */
+    public void put(String mediaType, int mediaId, String... externalIds) {
+        Ids ids = this.types.get(mediaType);
+
+        if (ids == null || mediaId <= 0) {
+            return;
+        }
+
+        List<String> keys = new ArrayList<String>(externalIds.length);
+        for (String externalId : externalIds) {
+            if (!Strings.isNullOrEmpty(externalId) && !externalId.trim().isEmpty()) {
+                keys.add(normalize(externalId));
+            }
+        }
+
+        this.remove(ids, mediaId);
+
+        if (!keys.isEmpty()) {
+            for (String key : keys) {
+                ids.byExternalId.put(key, mediaId);
+            }
+
+            ids.byId.put(mediaId, keys.toArray(new String[keys.size()]));
+        }
+    }
+
+    /**
+     * @param mediaType Type of the item ({@link MediaType} value)
+     * @param externalId External id of the item
+     * @return Id of the item, 0 if unknown
+     */
+    public int get(String mediaType, String externalId) {
+        Ids ids = this.types.get(mediaType);
+        Integer result = null;
+
+        if (ids != null && !Strings.isNullOrEmpty(externalId)) {
+            result = ids.byExternalId.get(normalize(externalId));
+        }
+
+        return result == null ? 0 : result;
+    }
+
+    /**
+     * @param externalId External id of an item
+     * @return Type of the item ({@link MediaType} value), null if unknown
+     */
+    public String getType(String externalId) {
+        String result = null;
+
+        if (!Strings.isNullOrEmpty(externalId)) {
+            String key = normalize(externalId);
+
+            for (String mediaType : MEDIA_TYPES) {
+                if (this.types.get(mediaType).byExternalId.containsKey(key)) {
+                    result = mediaType;
+                    break;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Drop external ids of items not found in xbmc anymore.
+     * @param mediaType Type of the items ({@link MediaType} value)
+     * @param mediaIds Ids of items still in xbmc
+     */
+    public void retain(String mediaType, IntHashSet mediaIds) {
+        Ids ids = this.types.get(mediaType);
+
+        if (ids != null) {
+            for (int mediaId : ids.byId.keys()) {
+                if (!mediaIds.contains(mediaId)) {
+                    this.remove(ids, mediaId);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        for (Ids ids : this.types.values()) {
+            ids.byExternalId.clear();
+            ids.byId.clear();
+        }
+    }
+
+    /**
+     * @return Number of external ids
+     */
+    public int size() {
+        int result = 0;
+
+        for (Ids ids : this.types.values()) {
+            result += ids.byExternalId.size();
+        }
+
+        return result;
+    }
+
+    private void remove(Ids ids, int mediaId) {
+        String[] previous = ids.byId.remove(mediaId);
+
+        if (previous != null) {
+            for (String key : previous) {
+                Integer owner = ids.byExternalId.get(key);
+
+                if (owner != null && owner == mediaId) {
+                    ids.byExternalId.remove(key);
+                }
+            }
+        }
+    }
+
+    private static String normalize(String externalId) {
+        return externalId.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,405 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+import org.rosmultimedia.player.xbmc.IXbmcNode;
+import org.rosmultimedia.player.xbmc.jsonrpc.XbmcJson;
+import org.xbmc.android.jsonrpc.api.call.Files;
+import org.xbmc.android.jsonrpc.api.model.ListModel.FileItem;
+import org.xbmc.android.jsonrpc.api.model.ListModel.SourceItem;
+
+import com.google.common.base.Strings;
+
+import smarthome_media_msgs.MediaGetItemsRequest;
+import smarthome_media_msgs.MediaGetItemsResponse;
+import smarthome_media_msgs.MediaItem;
+
+/**
+ * Xbmc file browser.
+ *
+ * Directories are crawled breadth first with Files.GetDirectory, with a
+ * bounded number of parallel requests. Each listing is given to the caller
+ * as soon as it is received. Listings are cached by path : an entry older
+ * than the ttl is served and revalidated in background, an entry much older
+ * is loaded again. The cache is bounded by the total number of files.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcFiles {
+    public static final String FILETYPE_DIRECTORY = "directory";
+    public static final String FILETYPE_FILE = "file";
+
+    /**
+     * Entries older than ttl * STALE_FACTOR are not served anymore.
+     */
+    private static final int STALE_FACTOR = 10;
+
+    /**
+     * Maximum files returned by a crawl.
+     */
+    private static final int MAX_CRAWL_FILES = 5000;
+
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    private static final String[] PROPERTIES = {
+        "file", "filetype", "mimetype", "size", "lastmodified"
+    };
+
+    /**
+     * Listener of partial crawl results.
+     */
+    public interface Listener {
+        /**
+         * @param path Path of the directory
+         * @param files Content of the directory
+         */
+        void onListing(String path, List<FileItem> files);
+    }
+
+    /**
+     * Cached listing.
+     */
+    private static final class Listing {
+        private final List<FileItem> files;
+        private final long time;
+
+        private Listing(List<FileItem> files, long time) {
+            this.files = files;
+            this.time = time;
+        }
+    }
+
+    /**
+     * Xbmc node.
+     */
+    private final IXbmcNode xbmcNode;
+
+    /**
+     * Xbmc json-rpc.
+     */
+    private final XbmcJson xbmcJson;
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final long ttl;
+    private final int maxFiles;
+
+    /**
+     * Listings by media and path, in access order.
+     */
+    private final LinkedHashMap<String, Listing> cache =
+            new LinkedHashMap<String, Listing>(64, 0.75f, true);
+    private int cachedFiles;
+
+    private final Set<String> revalidating =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * XbmcFiles constructor.
+     * @param xbmcJson {@link XbmcJson} xbmc json-rpc
+     * @param node {@link IXbmcNode} xbmc node
+     * @param executor Executor of directory requests
+     * @param parallelism Maximum parallel directory requests of a crawl
+     * @param ttl Time to live of cached listings, in ms
+     * @param maxFiles Maximum number of cached files
+     */
+    public XbmcFiles(XbmcJson xbmcJson, IXbmcNode node, ExecutorService executor,
+            int parallelism, long ttl, int maxFiles) {
+        this.xbmcJson = xbmcJson;
+        this.xbmcNode = node;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.ttl = ttl;
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * Crawl directories.
+     *
+     * Request data (json) : path (empty for sources), media (files, video,
+     * music, pictures), depth (1 for the directory only).
+     * @param request {@link MediaGetItemsRequest} with crawl parameters
+     * @param response {@link MediaGetItemsResponse} with all crawled files
+     * @param listener Listener of partial listings, may be null
+     */
+    public void handleMediaGetItems(MediaGetItemsRequest request,
+            MediaGetItemsResponse response, Listener listener) {
+        this.xbmcNode.logI("Service call MediaGetFiles");
+
+        String path = "";
+        String media = "files";
+        int depth = 1;
+
+        try {
+            String data = request.getItem().getData();
+
+            if (!Strings.isNullOrEmpty(data)) {
+                JsonNode node = OM.readTree(data);
+                path = node.path("path").getValueAsText();
+                media = node.has("media") ? node.get("media").getValueAsText() : media;
+                depth = node.has("depth") ? node.get("depth").getValueAsInt() : depth;
+            }
+        } catch (IOException e) {
+            this.xbmcNode.logE(e);
+        }
+
+        List<FileItem> files = this.crawl(path == null ? "" : path, media, depth, listener);
+        List<MediaItem> result = new ArrayList<MediaItem>(files.size());
+
+        for (FileItem file : files) {
+            result.add(this.toMediaItem(file));
+        }
+
+        response.setItems(result);
+    }
+
+    /**
+     * Crawl directories breadth first.
+     * @param root Path of the first directory, empty for sources
+     * @param media Media type of the sources
+     * @param depth Number of levels to crawl, 1 for the root only
+     * @param listener Listener of partial listings, may be null
+     * @return All crawled files
+     */
+    public List<FileItem> crawl(String root, final String media, int depth, Listener listener) {
+        List<FileItem> result = new ArrayList<FileItem>();
+        List<String> level = Collections.singletonList(root);
+
+        for (int i = 0; i < depth && !level.isEmpty() && result.size() < MAX_CRAWL_FILES; i++) {
+            List<String> next = new ArrayList<String>();
+            CompletionService<Object[]> completion =
+                    new ExecutorCompletionService<Object[]>(this.executor);
+            Deque<String> pending = new ArrayDeque<String>(level);
+            int running = 0;
+
+            while (running > 0 || !pending.isEmpty()) {
+                while (running < this.parallelism && !pending.isEmpty()) {
+                    final String path = pending.poll();
+
+                    try {
+                        completion.submit(new Callable<Object[]>() {
+                            @Override
+                            public Object[] call() {
+                                return new Object[] { path, XbmcFiles.this.getListing(path, media) };
+                            }
+                        });
+                        running++;
+                    } catch (RejectedExecutionException e) {
+                        pending.clear();
+                    }
+                }
+
+                if (running == 0) {
+                    break;
+                }
+
+                Object[] listing = this.take(completion);
+                running--;
+
+                if (listing == null) {
+                    continue;
+                }
+
+                @SuppressWarnings("unchecked")
+                List<FileItem> files = (List<FileItem>) listing[1];
+
+                if (listener != null) {
+                    listener.onListing((String) listing[0], files);
+                }
+
+                for (FileItem file : files) {
+                    if (result.size() < MAX_CRAWL_FILES) {
+                        result.add(file);
+                    }
+
+                    if (FILETYPE_DIRECTORY.equals(file.filetype) && !Strings.isNullOrEmpty(file.file)) {
+                        next.add(file.file);
+                    }
+                }
+            }
+
+            level = next;
+        }
+
+        return result;
+    }
+
+    /**
+     * Get listing of a directory, from cache when possible.
+     * @param path Path of the directory, empty for sources
+     * @param media Media type of the sources
+     * @return Files of the directory, empty on error
+     */
+    public List<FileItem> getListing(final String path, final String media) {
+        final String key = media + "|" + path;
+        long now = System.currentTimeMillis();
+        Listing listing;
+
+        synchronized (this.cache) {
+            listing = this.cache.get(key);
+        }
+
+        if (listing == null || now - listing.time > this.ttl * STALE_FACTOR) {
+            listing = this.load(key, path, media);
+        } else if (now - listing.time > this.ttl && this.revalidating.add(key)) {
+            try {
+                this.executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            XbmcFiles.this.load(key, path, media);
+                        } finally {
+                            XbmcFiles.this.revalidating.remove(key);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.revalidating.remove(key);
+            }
+        }
+
+        return listing == null ? Collections.<FileItem>emptyList() : listing.files;
+    }
+
+    /**
+     * Drop all cached listings.
+     */
+    public void clear() {
+        synchronized (this.cache) {
+            this.cache.clear();
+            this.cachedFiles = 0;
+        }
+    }
+
+    private Listing load(String key, String path, String media) {
+        List<FileItem> files;
+
+        if (Strings.isNullOrEmpty(path)) {
+            files = this.getSources(media);
+        } else {
+            files = this.xbmcJson.getResults(new Files.GetDirectory(path, media, PROPERTIES));
+        }
+
+        Listing result = null;
+
+        if (files != null) {
+            result = new Listing(Collections.unmodifiableList(files), System.currentTimeMillis());
+            this.put(key, result);
+        }
+
+        return result;
+    }
+
+    private List<FileItem> getSources(String media) {
+        List<SourceItem> sources = this.xbmcJson.getResults(new Files.GetSources(media));
+        List<FileItem> result = null;
+
+        if (sources != null) {
+            result = new ArrayList<FileItem>(sources.size());
+
+            for (SourceItem source : sources) {
+                ObjectNode node = OM.createObjectNode();
+                node.put(FileItem.LABEL, source.label);
+                node.put(FileItem.FILE, source.file);
+                node.put(FileItem.FILETYPE, FILETYPE_DIRECTORY);
+                result.add(new FileItem(node));
+            }
+        }
+
+        return result;
+    }
+
+    private void put(String key, Listing listing) {
+        synchronized (this.cache) {
+            Listing previous = this.cache.put(key, listing);
+
+            if (previous != null) {
+                this.cachedFiles -= previous.files.size();
+            }
+
+            this.cachedFiles += listing.files.size();
+
+            Iterator<Map.Entry<String, Listing>> eldest = this.cache.entrySet().iterator();
+            while (this.cachedFiles > this.maxFiles && eldest.hasNext()) {
+                Map.Entry<String, Listing> entry = eldest.next();
+
+                if (entry.getValue() != listing) {
+                    this.cachedFiles -= entry.getValue().files.size();
+                    eldest.remove();
+                }
+            }
+        }
+    }
+
+    private Object[] take(CompletionService<Object[]> completion) {
+        Object[] result = null;
+
+        try {
+            Future<Object[]> future = completion.take();
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            this.xbmcNode.logE(e);
+        }
+
+        return result;
+    }
+
+    /**
+     * Convert {@link FileItem} to {@link MediaItem}, type is the file type and
+     * data the json file properties.
+     * @param file {@link FileItem} rpc
+     * @return {@link MediaItem}
+     */
+    public MediaItem toMediaItem(FileItem file) {
+        MediaItem result = this.xbmcNode.getNewMessageInstance(MediaItem._TYPE);
+        ObjectNode node = OM.createObjectNode();
+
+        node.put(FileItem.FILE, file.file);
+        node.put(FileItem.LABEL, file.label);
+        node.put(FileItem.FILETYPE, file.filetype);
+        node.put(FileItem.MIMETYPE, file.mimetype);
+        node.put(FileItem.LASTMODIFIED, file.lastmodified);
+
+        if (file.size != null && file.size >= 0) {
+            node.put(FileItem.SIZE, file.size);
+        }
+
+        result.setMediaid(0);
+        result.getMediatype().setValue(
+                FILETYPE_DIRECTORY.equals(file.filetype) ? FILETYPE_DIRECTORY : FILETYPE_FILE);
+        result.setData(node.toString());
+
+        return result;
+    }
+}
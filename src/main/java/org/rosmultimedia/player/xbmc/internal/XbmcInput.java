@@ -0,0 +1,182 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.rosmultimedia.player.xbmc.IXbmcNode;
+import org.rosmultimedia.player.xbmc.jsonrpc.XbmcJson;
+import org.xbmc.android.jsonrpc.api.AbstractCall;
+
+/**
+ * Xbmc input channel.
+ *
+ * Keys are queued and sent in order by a single sender, without waiting for
+ * xbmc : keys received while a request is running are sent together in the
+ * next json-rpc batch, on the same keep-alive connection. Directional keys
+ * waiting longer than the latency budget are dropped, unless a key after
+ * them depends on the focus they move (select, back...).
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcInput {
+    /**
+     * Maximum delay of a directional key, in ms.
+     */
+    private static final long LATENCY_BUDGET = 300;
+
+    /**
+     * Maximum keys of a batch.
+     */
+    private static final int MAX_BATCH = 16;
+
+    /**
+     * Queued key.
+     */
+    private static final class Key {
+        private final AbstractCall<?> call;
+        private final boolean directional;
+        private final long time;
+
+        private Key(AbstractCall<?> call, boolean directional, long time) {
+            this.call = call;
+            this.directional = directional;
+            this.time = time;
+        }
+    }
+
+    /**
+     * Xbmc node.
+     */
+    private final IXbmcNode xbmcNode;
+
+    /**
+     * Xbmc json-rpc.
+     */
+    private final XbmcJson xbmcJson;
+
+    private final Executor executor;
+
+    private final ConcurrentLinkedQueue<Key> queue = new ConcurrentLinkedQueue<Key>();
+
+    /**
+     * A sender is running, only one at a time to keep keys in order.
+     */
+    private final AtomicBoolean sending = new AtomicBoolean();
+
+    private final Runnable sender = new Runnable() {
+        @Override
+        public void run() {
+            XbmcInput.this.drain();
+        }
+    };
+
+    /**
+     * XbmcInput constructor.
+     * @param xbmcJson {@link XbmcJson} xbmc json-rpc
+     * @param node {@link IXbmcNode} xbmc node
+     * @param executor Executor of the sender
+     */
+    public XbmcInput(XbmcJson xbmcJson, IXbmcNode node, Executor executor) {
+        this.xbmcJson = xbmcJson;
+        this.xbmcNode = node;
+        this.executor = executor;
+    }
+
+    /**
+     * Queue a key, returns without waiting for xbmc.
+     * @param call Input (or seek) call of the key
+     * @param directional true if the key may be dropped when late
+     */
+    public void send(AbstractCall<?> call, boolean directional) {
+        this.queue.add(new Key(call, directional, System.currentTimeMillis()));
+        this.schedule();
+    }
+
+    private void schedule() {
+        if (!this.queue.isEmpty() && this.sending.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(this.sender);
+            } catch (RejectedExecutionException e) {
+                this.queue.clear();
+                this.sending.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            List<Key> keys = new ArrayList<Key>();
+            Key key;
+
+            while ((key = this.queue.poll()) != null) {
+                keys.add(key);
+
+                if (this.queue.isEmpty()) {
+                    this.sendKeys(keys);
+                    keys.clear();
+                }
+            }
+        } finally {
+            this.sending.set(false);
+        }
+
+        // Keys queued after last poll and before release.
+        this.schedule();
+    }
+
+    /**
+     * Send queued keys, late directional keys after the last other key are
+     * dropped.
+     * @param keys Keys, in order
+     */
+    private void sendKeys(List<Key> keys) {
+        long now = System.currentTimeMillis();
+        int barrier = -1;
+
+        for (int i = keys.size() - 1; i >= 0 && barrier < 0; i--) {
+            if (!keys.get(i).directional) {
+                barrier = i;
+            }
+        }
+
+        List<AbstractCall<?>> calls = new ArrayList<AbstractCall<?>>(keys.size());
+        int dropped = 0;
+
+        for (int i = 0; i < keys.size(); i++) {
+            Key key = keys.get(i);
+
+            if (i > barrier && now - key.time > LATENCY_BUDGET) {
+                dropped++;
+            } else {
+                calls.add(key.call);
+            }
+        }
+
+        if (dropped > 0) {
+            this.xbmcNode.logI(String.format("Input : %d late keys dropped", dropped));
+        }
+
+        for (int i = 0; i < calls.size(); i += MAX_BATCH) {
+            List<AbstractCall<?>> batch = calls.subList(i, Math.min(calls.size(), i + MAX_BATCH));
+
+            if (batch.size() == 1) {
+                this.xbmcJson.getResult(batch.get(0));
+            } else {
+                this.xbmcJson.executeBatch(batch);
+            }
+        }
+    }
+}
@@ -8,9 +8,23 @@
  */
 package org.rosmultimedia.player.xbmc.internal;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
 import org.rosbuilding.common.media.ILibrary;
 import org.rosmultimedia.player.media.model.Album;
 import org.rosmultimedia.player.media.model.Media;
@@ -19,12 +33,16 @@ import org.rosmultimedia.player.media.model.Song;
 import org.rosmultimedia.player.media.model.Tvshow;
 import org.rosmultimedia.player.xbmc.IXbmcNode;
 import org.rosmultimedia.player.xbmc.XbmcNode;
+import org.rosmultimedia.player.xbmc.internal.artwork.XbmcArtwork;
+import org.rosmultimedia.player.xbmc.internal.collection.IntHashSet;
 import org.rosmultimedia.player.xbmc.jsonrpc.XbmcJson;
+import org.xbmc.android.jsonrpc.api.AbstractCall;
 import org.xbmc.android.jsonrpc.api.call.AudioLibrary;
 import org.xbmc.android.jsonrpc.api.call.VideoLibrary.GetEpisodeDetails;
 import org.xbmc.android.jsonrpc.api.call.VideoLibrary.GetEpisodes;
 import org.xbmc.android.jsonrpc.api.call.VideoLibrary.GetMovieDetails;
 import org.xbmc.android.jsonrpc.api.call.VideoLibrary.GetMovies;
+import org.xbmc.android.jsonrpc.api.call.VideoLibrary.GetSeasons;
 import org.xbmc.android.jsonrpc.api.call.VideoLibrary.GetTVShows;
 import org.xbmc.android.jsonrpc.api.model.AudioModel.AlbumDetail;
 import org.xbmc.android.jsonrpc.api.model.AudioModel.SongDetail;
@@ -46,6 +64,7 @@ import org.xbmc.android.jsonrpc.api.model.VideoModel.EpisodeDetail;
 import org.xbmc.android.jsonrpc.api.model.VideoModel.FileDetail;
 import org.xbmc.android.jsonrpc.api.model.VideoModel.ItemDetail;
 import org.xbmc.android.jsonrpc.api.model.VideoModel.MovieDetail;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.SeasonDetail;
 import org.xbmc.android.jsonrpc.api.model.VideoModel.TVShowDetail;
 
 import com.google.common.base.Strings;
@@ -65,6 +84,23 @@ import smarthome_media_msgs.MediaType;
  *
  */
 public class XbmcLibrary implements ILibrary {
+	/**
+	 * Media type of tvshow seasons browsing, data holds the tvshowid.
+	 */
+	public static final String MEDIA_TYPE_SEASON = "season";
+
+	private static final ObjectMapper OM = new ObjectMapper();
+
+	/**
+	 * Maximum wait of a request on the prefetch of its item, in ms.
+	 */
+	private static final long PREFETCH_WAIT = 5000;
+
+	/**
+	 * Largest page of items of a facet value.
+	 */
+	private static final int FACET_PAGE = 100;
+
 	/**
 	 * Xbmc node.
 	 */
@@ -75,14 +111,201 @@ public class XbmcLibrary implements ILibrary {
 	 */
 	private XbmcJson xbmcJson;
 
+	/**
+	 * Index of library results already loaded.
+	 */
+	private XbmcLibraryIndex index;
+
+	/**
+	 * Artwork proxy.
+	 */
+	private XbmcArtwork artwork;
+
+	/**
+	 * Executor of background prefetch.
+	 */
+	private Executor executor;
+
+	/**
+	 * Facets of the library.
+	 */
+	private XbmcLibraryFacets facets;
+
+	/**
+	 * Feeds of the library.
+	 */
+	private XbmcLibraryFeeds feeds;
+
+	/**
+	 * Prefetches of played items in progress, by type and id.
+	 */
+	private final ConcurrentMap<String, FutureTask<Media>> prefetches =
+			new ConcurrentHashMap<String, FutureTask<Media>>();
+
 	/**
 	 * XbmcLibrary constructor.
 	 * @param xbmcJson {@link XbmcJson} xbmc json-rpc
 	 * @param xbmcNode {@link XbmcNode} xbmc node
+	 * @param artwork {@link XbmcArtwork} artwork proxy
+	 * @param executor Executor of background prefetch
 	 */
-	public XbmcLibrary(XbmcJson xbmcJson, IXbmcNode node) {
+	public XbmcLibrary(XbmcJson xbmcJson, IXbmcNode node, XbmcArtwork artwork,
+			Executor executor) {
 		this.xbmcJson = xbmcJson;
 		this.xbmcNode = node;
+		this.artwork = artwork;
+		this.executor = executor;
+		this.index = new XbmcLibraryIndex();
+		this.facets = new XbmcLibraryFacets(xbmcJson, node);
+		this.feeds = new XbmcLibraryFeeds(xbmcJson, node, this);
+	}
+
+	/**
+	 * @return {@link XbmcLibraryFacets} of the library
+	 */
+	public XbmcLibraryFacets getFacets() {
+		return this.facets;
+	}
+
+	/**
+	 * @return {@link XbmcLibraryFeeds} of the library
+	 */
+	public XbmcLibraryFeeds getFeeds() {
+		return this.feeds;
+	}
+
+	/**
+	 * @return {@link XbmcLibraryIndex} of loaded library results
+	 */
+	public XbmcLibraryIndex getIndex() {
+		return this.index;
+	}
+
+	/**
+	 * Drop a cached item (item was played, updated or removed in xbmc).
+	 * @param mediaType Type of the item ({@link MediaType} value)
+	 * @param mediaId Id of the item
+	 */
+	public void invalidate(String mediaType, int mediaId) {
+		this.index.remove(mediaType, mediaId);
+	}
+
+	/**
+	 * Reconcile index with xbmc library, after a load from snapshot.
+	 * Only ids and a few volatile properties are requested : removed items
+	 * are dropped, items with another playcount are dropped, tvshows and
+	 * albums with new items are marked incomplete. External ids of all items
+	 * are indexed, for playback by external id.
+	 * @return Number of dropped items
+	 */
+	public int reconcile() {
+		int result = 0;
+
+		List<MovieDetail> movies = this.xbmcJson.getResults(new GetMovies("playcount", "imdbnumber"));
+		if (movies != null) {
+			IntHashSet ids = new IntHashSet(movies.size());
+
+			for (MovieDetail movie : movies) {
+				ids.add(movie.movieid);
+				this.index.putExternalIds(MediaType.VIDEO_MOVIE, movie.movieid, movie.imdbnumber);
+				MovieDetail indexed = this.index.getMovie(movie.movieid);
+
+				if (indexed != null && isChanged(indexed.playcount, movie.playcount)) {
+					this.index.remove(MediaType.VIDEO_MOVIE, movie.movieid);
+					result++;
+				}
+			}
+
+			result += this.index.retain(MediaType.VIDEO_MOVIE, ids);
+		}
+
+		List<TVShowDetail> tvshows = this.xbmcJson.getResults(new GetTVShows("episode", "imdbnumber"));
+		if (tvshows != null) {
+			IntHashSet ids = new IntHashSet(tvshows.size());
+
+			for (TVShowDetail tvshow : tvshows) {
+				ids.add(tvshow.tvshowid);
+				this.index.putExternalIds(MediaType.VIDEO_TVSHOW, tvshow.tvshowid, tvshow.imdbnumber);
+				TVShowDetail indexed = this.index.getTvshow(tvshow.tvshowid);
+
+				if (indexed != null && isChanged(indexed.episode, tvshow.episode)) {
+					this.index.remove(MediaType.VIDEO_TVSHOW, tvshow.tvshowid);
+					result++;
+				}
+			}
+
+			result += this.index.retain(MediaType.VIDEO_TVSHOW, ids);
+		}
+
+		List<EpisodeDetail> episodes = this.xbmcJson.getResults(
+				new GetEpisodes("tvshowid", "playcount", "uniqueid"));
+		if (episodes != null) {
+			IntHashSet ids = new IntHashSet(episodes.size());
+
+			for (EpisodeDetail episode : episodes) {
+				ids.add(episode.episodeid);
+
+				if (episode.uniqueid != null) {
+					this.index.putExternalIds(MediaType.VIDEO_TVSHOW_EPISODE, episode.episodeid,
+							episode.uniqueid.values().toArray(new String[episode.uniqueid.size()]));
+				}
+
+				EpisodeDetail indexed = this.index.getEpisode(episode.episodeid);
+
+				if (indexed == null) {
+					this.index.setTvshowIncomplete(episode.tvshowid);
+				} else if (isChanged(indexed.playcount, episode.playcount)) {
+					this.index.remove(MediaType.VIDEO_TVSHOW_EPISODE, episode.episodeid);
+					result++;
+				}
+			}
+
+			result += this.index.retain(MediaType.VIDEO_TVSHOW_EPISODE, ids);
+		}
+
+		List<SongDetail> songs = this.xbmcJson.getResults(
+				new AudioLibrary.GetSongs("albumid", "playcount", "musicbrainztrackid"));
+		if (songs != null) {
+			IntHashSet ids = new IntHashSet(songs.size());
+
+			for (SongDetail song : songs) {
+				ids.add(song.songid);
+				this.index.putExternalIds(MediaType.AUDIO_SONG, song.songid, song.musicbrainztrackid);
+				SongDetail indexed = this.index.getSong(song.songid);
+
+				if (indexed == null) {
+					this.index.setAlbumIncomplete(song.albumid);
+				} else if (isChanged(indexed.playcount, song.playcount)) {
+					this.index.remove(MediaType.AUDIO_SONG, song.songid);
+					result++;
+				}
+			}
+
+			result += this.index.retain(MediaType.AUDIO_SONG, ids);
+		}
+
+		List<AlbumDetail> albums = this.xbmcJson.getResults(new AudioLibrary.GetAlbums("musicbrainzalbumid"));
+		if (albums != null) {
+			IntHashSet ids = new IntHashSet(albums.size());
+
+			for (AlbumDetail album : albums) {
+				ids.add(album.albumid);
+				this.index.putExternalIds(MediaType.AUDIO_ALBUM, album.albumid, album.musicbrainzalbumid);
+			}
+
+			result += this.index.retain(MediaType.AUDIO_ALBUM, ids);
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param indexed Value of the indexed item, negative if not loaded
+	 * @param current Value in xbmc
+	 * @return true if indexed value is outdated
+	 */
+	private static boolean isChanged(Integer indexed, Integer current) {
+		return indexed != null && indexed >= 0 && !indexed.equals(current);
 	}
 
 	@Override
@@ -98,20 +321,15 @@ public class XbmcLibrary implements ILibrary {
 		}
 
 		Media media = null;
+		XbmcProjection profile = XbmcProjection.fromData(request.getItem().getData());
 
 		if (mediaId < 0) {
 			mediaId = 0;
 		}
 
-		if (mediaType.getValue().equals(MediaType.VIDEO_MOVIE)) {
-			media = this.getMovie(mediaId);
-		} else if (mediaType.getValue().equals(MediaType.VIDEO_TVSHOW_EPISODE)) {
-			media = this.getTvshowEpisode(mediaId);
-		} else if (mediaType.getValue().equals(MediaType.AUDIO_SONG)) {
-		    media = this.getAudioSong(mediaId);
-		} else if (mediaType.getValue().equals(MediaType.AUDIO_ALBUM)) {
-            media = this.getAudioAlbum(mediaId);
-        }
+		// Played item may be loading, wait for it rather than load it twice.
+		this.awaitPrefetch(mediaType.getValue(), mediaId);
+		media = this.getItem(mediaType.getValue(), mediaId, profile);
 
 		if (media == null) {
 			//We need to send default message.
@@ -135,26 +353,31 @@ public class XbmcLibrary implements ILibrary {
 		int mediaId = request.getItem().getMediaid();
 		MediaType mediaType = request.getItem().getMediatype();
 		List<Media> medias = null;
+		XbmcProjection profile = XbmcProjection.fromData(request.getItem().getData());
+		String data = XbmcProjection.strip(request.getItem().getData());
 
 		if (mediaId < 0) {
 			mediaId = 0;
 		}
 
 		if (mediaType.getValue().equals(MediaType.VIDEO_MOVIE)) {
-		    Movie media = Movie.fromJson(request.getItem().getData());
-			medias = this.getMovies(media, null);
+		    Movie media = Movie.fromJson(data);
+			medias = this.getMovies(media, null, profile);
 		} else if (mediaType.getValue().equals(MediaType.VIDEO_TVSHOW_EPISODE)) {
-		    Tvshow media = Tvshow.fromJson(request.getItem().getData());
-			medias = this.getTvshows(media, null);
+		    Tvshow media = Tvshow.fromJson(data);
+			medias = this.getTvshows(media, null, profile);
 		} else if (mediaType.getValue().equals(MediaType.VIDEO_TVSHOW)) {
-		    Tvshow media = Tvshow.fromJson(request.getItem().getData());
-			medias = this.getTvshowEpisodes(media, null);
+		    Tvshow media = Tvshow.fromJson(data);
+			medias = this.getTvshowEpisodes(media, null, profile);
+		} else if (mediaType.getValue().equals(MEDIA_TYPE_SEASON)) {
+		    Tvshow media = Tvshow.fromJson(data);
+			medias = this.getTvshowSeasons(media.getTvshowid());
 		} else if (mediaType.getValue().equals(MediaType.AUDIO_SONG)) {
-		    Song media = Song.fromJson(request.getItem().getData());
-		    medias = this.getAudioSongs(media, null);
+		    Song media = Song.fromJson(data);
+		    medias = this.getAudioSongs(media, null, profile);
 		} else if (mediaType.getValue().equals(MediaType.AUDIO_ALBUM)) {
-		    Album media = Album.fromJson(request.getItem().getData());
-            medias = this.getAudioAlbums(media, null);
+		    Album media = Album.fromJson(data);
+            medias = this.getAudioAlbums(media, null, profile);
         }
 
 		if (medias == null) {
@@ -162,6 +385,8 @@ public class XbmcLibrary implements ILibrary {
 			medias = new ArrayList<Media>();
 		}
 
+		this.prefetchArtwork(medias);
+
 		List<MediaItem> result = new ArrayList<MediaItem>();
 
 		for (Media media : medias) {
@@ -177,18 +402,405 @@ public class XbmcLibrary implements ILibrary {
 		response.setItems(result);
 	}
 
+	/**
+	 * Facet browsing of movies or songs.
+	 *
+	 * Request data (json) : facet (genre, year...), value (optional), start
+	 * and end (optional). Without value, response has one item per value of
+	 * the facet, with data (json) : facet, value, count. With a value,
+	 * response has a page of the items of the value (at most 100, from start
+	 * to end), listed by xbmc with the list profile.
+	 * @param request {@link MediaGetItemsRequest} with facet
+	 * @param response {@link MediaGetItemsResponse} with values or items
+	 */
+	public void handleMediaGetFacets(MediaGetItemsRequest request,
+			MediaGetItemsResponse response) {
+		this.xbmcNode.logI("Service call MediaGetFacets");
+
+		MediaType mediaType = request.getItem().getMediatype();
+		String facet = null;
+		String value = null;
+		int start = 0;
+		int end = 0;
+
+		try {
+			String data = request.getItem().getData();
+
+			if (!Strings.isNullOrEmpty(data)) {
+				JsonNode node = OM.readTree(data);
+				facet = node.path("facet").getTextValue();
+				value = node.path("value").getValueAsText();
+				start = Math.max(0, node.path("start").getIntValue());
+				end = node.path("end").getIntValue();
+			}
+		} catch (IOException e) {
+			this.xbmcNode.logE(e);
+		}
+
+		List<MediaItem> result = new ArrayList<MediaItem>();
+
+		// Facet is sent to xbmc as a filter field.
+		if (!XbmcLibraryFacets.isFacet(mediaType.getValue(), facet)) {
+			this.xbmcNode.logI(String.format("Unknown facet %s of %s", facet, mediaType.getValue()));
+		} else if (Strings.isNullOrEmpty(value)) {
+			if (!this.facets.isLoaded()) {
+				this.facets.refresh();
+			}
+
+			Map<String, Integer> counts = this.facets.getCounts(mediaType.getValue(), facet);
+
+			for (Map.Entry<String, Integer> count : counts.entrySet()) {
+				ObjectNode node = OM.createObjectNode();
+				node.put("facet", facet);
+				node.put("value", count.getKey());
+				node.put("count", count.getValue());
+
+				MediaItem item = this.xbmcNode.getNewMessageInstance(MediaItem._TYPE);
+				item.setMediaid(0);
+				item.getMediatype().setValue(facet);
+				item.setData(node.toString());
+				result.add(item);
+			}
+		} else {
+			if (end <= start || end > start + FACET_PAGE) {
+				end = start + FACET_PAGE;
+			}
+
+			List<Media> medias = this.getFacetMedias(mediaType.getValue(), facet, value,
+					new Limits(end, start));
+
+			for (Media media : medias) {
+				MediaItem item = this.xbmcNode.getNewMessageInstance(MediaItem._TYPE);
+				item.setMediaid(media.getMediaid());
+				item.setMediatype(mediaType);
+				item.setData(media.toJson());
+				result.add(item);
+			}
+		}
+
+		response.setItems(result);
+	}
+
+	/**
+	 * Get a page of the items of a facet value, with the list profile.
+	 * @param mediaType Type of the items ({@link MediaType} value)
+	 * @param facet Name of the facet, also a field of xbmc filters
+	 * @param value Value of the facet
+	 * @param limits Page of the items
+	 * @return List of {@link Media}
+	 */
+	private List<Media> getFacetMedias(String mediaType, String facet, String value,
+			Limits limits) {
+		List<Media> result = new ArrayList<Media>();
+		Sort sort = new Sort(false, "label", "ascending");
+
+		if (MediaType.VIDEO_MOVIE.equals(mediaType)) {
+			List<MovieDetail> items = this.xbmcJson.getResults(new GetMovies(limits, sort,
+					new MovieFilter(new MovieFilterRule("is", new Value(value), facet)),
+					this.getMovieProperties(XbmcProjection.LIST)));
+
+			if (items != null) {
+				for (MovieDetail item : items) {
+					result.add(this.getMovie(item));
+				}
+			}
+		} else if (MediaType.AUDIO_SONG.equals(mediaType)) {
+			List<SongDetail> items = this.xbmcJson.getResults(new AudioLibrary.GetSongs(limits, sort,
+					new SongFilter(new SongFilterRule("is", new Value(value), facet)),
+					this.getAudioSongProperties(XbmcProjection.LIST)));
+
+			if (items != null) {
+				for (SongDetail item : items) {
+					result.add(this.getAudioSong(item));
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get items by type and id.
+	 *
+	 * Request data (json) : array of items {mediatype, mediaid}, or object
+	 * with this array as items. Response has the items found, in request
+	 * order. Indexed items are answered from index, others are loaded with a
+	 * single batch request.
+	 * @param request {@link MediaGetItemsRequest} with items
+	 * @param response {@link MediaGetItemsResponse} with items found
+	 */
+	public void handleMediaGetMulti(MediaGetItemsRequest request,
+			MediaGetItemsResponse response) {
+		this.xbmcNode.logI("Service call MediaGetMulti");
+
+		List<String> mediaTypes = new ArrayList<String>();
+		List<Integer> mediaIds = new ArrayList<Integer>();
+
+		try {
+			String data = request.getItem().getData();
+
+			if (!Strings.isNullOrEmpty(data)) {
+				JsonNode node = OM.readTree(data);
+				JsonNode items = node.isArray() ? node : node.path("items");
+
+				for (JsonNode item : items) {
+					mediaTypes.add(item.path("mediatype").getTextValue());
+					mediaIds.add(item.path("mediaid").getIntValue());
+				}
+			}
+		} catch (IOException e) {
+			this.xbmcNode.logE(e);
+		}
+
+		int[] ids = new int[mediaIds.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = mediaIds.get(i);
+		}
+
+		String[] types = mediaTypes.toArray(new String[mediaTypes.size()]);
+		Media[] medias = this.getMedias(types, ids);
+		List<MediaItem> result = new ArrayList<MediaItem>(medias.length);
+
+		for (int i = 0; i < medias.length; i++) {
+			if (medias[i] != null) {
+				MediaItem item = this.xbmcNode.getNewMessageInstance(MediaItem._TYPE);
+				item.setMediaid(medias[i].getMediaid());
+				item.getMediatype().setValue(types[i]);
+				item.setData(medias[i].toJson());
+				result.add(item);
+			}
+		}
+
+		response.setItems(result);
+	}
+
+	/**
+	 * Get items by type and id, from index or with a single batch request
+	 * for items not indexed (movies, episodes, songs and albums).
+	 * @param mediaTypes Types of the items ({@link MediaType} values)
+	 * @param ids Ids of the items
+	 * @return {@link Media} of each item, null if not found
+	 */
+	private Media[] getMedias(String[] mediaTypes, int[] ids) {
+		Media[] result = new Media[ids.length];
+		List<AbstractCall<?>> calls = new ArrayList<AbstractCall<?>>();
+
+		for (int i = 0; i < ids.length; i++) {
+			result[i] = this.getIndexedMedia(mediaTypes[i], ids[i]);
+
+			if (result[i] == null && ids[i] > 0) {
+				AbstractCall<?> call = this.newDetailsCall(mediaTypes[i], ids[i]);
+
+				if (call != null) {
+					calls.add(call);
+				}
+			}
+		}
+
+		this.xbmcJson.executeBatch(calls);
+
+		for (AbstractCall<?> call : calls) {
+			Object detail = call.getResult();
+
+			if (detail instanceof MovieDetail) {
+				this.index.putMovie((MovieDetail) detail);
+			} else if (detail instanceof EpisodeDetail) {
+				this.index.putEpisode((EpisodeDetail) detail);
+			} else if (detail instanceof SongDetail) {
+				this.index.putSong((SongDetail) detail);
+			} else if (detail instanceof AlbumDetail) {
+				this.index.putAlbum((AlbumDetail) detail);
+			}
+		}
+
+		if (!calls.isEmpty()) {
+			for (int i = 0; i < ids.length; i++) {
+				if (result[i] == null) {
+					result[i] = this.getIndexedMedia(mediaTypes[i], ids[i]);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param mediaType Type of the item ({@link MediaType} value)
+	 * @param mediaId Id of the item
+	 * @return {@link Media} of the item, null if not indexed
+	 */
+	private Media getIndexedMedia(String mediaType, int mediaId) {
+		Media result = null;
+
+		if (MediaType.VIDEO_MOVIE.equals(mediaType)) {
+			MovieDetail detail = this.index.getMovie(mediaId);
+			result = detail == null ? null : this.getMovie(detail);
+		} else if (MediaType.VIDEO_TVSHOW_EPISODE.equals(mediaType)) {
+			EpisodeDetail detail = this.index.getEpisode(mediaId);
+			result = detail == null ? null : this.getTvshowEpisode(detail);
+		} else if (MediaType.AUDIO_SONG.equals(mediaType)) {
+			SongDetail detail = this.index.getSong(mediaId);
+			result = detail == null ? null : this.getAudioSong(detail);
+		} else if (MediaType.AUDIO_ALBUM.equals(mediaType)) {
+			AlbumDetail detail = this.index.getAlbum(mediaId);
+			result = detail == null ? null : this.getAudioAlbum(detail);
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param mediaType Type of the item ({@link MediaType} value)
+	 * @param mediaId Id of the item
+	 * @return Details call of the item, null if type has no details call
+	 */
+	private AbstractCall<?> newDetailsCall(String mediaType, int mediaId) {
+		AbstractCall<?> result = null;
+
+		if (MediaType.VIDEO_MOVIE.equals(mediaType)) {
+			result = new GetMovieDetails(mediaId, this.getMovieProperties());
+		} else if (MediaType.VIDEO_TVSHOW_EPISODE.equals(mediaType)) {
+			result = new GetEpisodeDetails(mediaId, this.getTvshowEpisodeProperties());
+		} else if (MediaType.AUDIO_SONG.equals(mediaType)) {
+			result = new AudioLibrary.GetSongDetails(mediaId, this.getAudioSongProperties());
+		} else if (MediaType.AUDIO_ALBUM.equals(mediaType)) {
+			result = new AudioLibrary.GetAlbumDetails(mediaId, this.getAudioAlbumProperties());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Download artwork of the first browse results in background.
+	 * @param medias Browse results
+	 */
+	private void prefetchArtwork(List<Media> medias) {
+		int count = Math.min(medias.size(), this.artwork.getPrefetchCount());
+
+		for (int i = 0; i < count; i++) {
+			this.artwork.prefetch(medias.get(i).getThumbnail());
+			this.artwork.prefetch(medias.get(i).getFanart());
+		}
+	}
+
+	/**
+	 * Load detail and artwork of a played item in background, so that
+	 * next get_item requests of the item are answered from the index.
+	 * @param mediaType Type of the item ({@link MediaType} value)
+	 * @param mediaId Id of the item
+	 */
+	public void prefetchItem(final String mediaType, final int mediaId) {
+		if (mediaId <= 0 || this.executor == null || !isItemType(mediaType)) {
+			return;
+		}
+
+		final String key = mediaType + "|" + mediaId;
+		FutureTask<Media> task = new FutureTask<Media>(new Callable<Media>() {
+			@Override
+			public Media call() {
+				Media media = XbmcLibrary.this.getItem(mediaType, mediaId, XbmcProjection.DETAIL);
+
+				if (media != null) {
+					XbmcLibrary.this.artwork.prefetch(media.getThumbnail());
+					XbmcLibrary.this.artwork.prefetch(media.getFanart());
+				}
+
+				return media;
+			}
+		}) {
+			@Override
+			protected void done() {
+				XbmcLibrary.this.prefetches.remove(key, this);
+			}
+		};
+
+		if (this.prefetches.putIfAbsent(key, task) == null) {
+			try {
+				this.executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				// Node is shutting down.
+				this.prefetches.remove(key, task);
+			}
+		}
+	}
+
+	/**
+	 * Wait for the prefetch of an item, if in progress.
+	 * @param mediaType Type of the item ({@link MediaType} value)
+	 * @param mediaId Id of the item
+	 */
+	private void awaitPrefetch(String mediaType, int mediaId) {
+		FutureTask<Media> task = this.prefetches.get(mediaType + "|" + mediaId);
+
+		if (task != null) {
+			try {
+				task.get(PREFETCH_WAIT, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				this.xbmcNode.logE(e);
+			} catch (TimeoutException e) {
+				// Slow prefetch, item is loaded by the request.
+			}
+		}
+	}
+
+	/**
+	 * @param mediaType Type of the item ({@link MediaType} value)
+	 * @return true if items of the type are loaded by {@link #getItem}
+	 */
+	private static boolean isItemType(String mediaType) {
+		return MediaType.VIDEO_MOVIE.equals(mediaType)
+				|| MediaType.VIDEO_TVSHOW_EPISODE.equals(mediaType)
+				|| MediaType.AUDIO_SONG.equals(mediaType)
+				|| MediaType.AUDIO_ALBUM.equals(mediaType);
+	}
+
+	/**
+	 * Get an item from index, or from xbmc json-rpc.
+	 * @param mediaType Type of the item ({@link MediaType} value)
+	 * @param mediaId Id of the item
+	 * @param profile Properties to load if not indexed
+	 * @return {@link Media}, null if not found or of another type
+	 */
+	private Media getItem(String mediaType, int mediaId, XbmcProjection profile) {
+		Media result = null;
+
+		if (MediaType.VIDEO_MOVIE.equals(mediaType)) {
+			result = this.getMovie(mediaId, profile);
+		} else if (MediaType.VIDEO_TVSHOW_EPISODE.equals(mediaType)) {
+			result = this.getTvshowEpisode(mediaId, profile);
+		} else if (MediaType.AUDIO_SONG.equals(mediaType)) {
+			result = this.getAudioSong(mediaId, profile);
+		} else if (MediaType.AUDIO_ALBUM.equals(mediaType)) {
+			result = this.getAudioAlbum(mediaId, profile);
+		}
+
+		return result;
+	}
+
 	/**
 	 * Get movie from xbmc json-rpc.
 	 * @param mediaId Id of the movie to find
+	 * @param profile Properties to load if not indexed
 	 * @return {@link Media}
 	 */
-	private Media getMovie(int mediaId) {
+	private Media getMovie(int mediaId, XbmcProjection profile) {
 		Media result = null;
 
 		if (mediaId > 0) {
-			String[] properties = this.getMovieProperties();
-			MovieDetail item = this.xbmcJson.getResult(new GetMovieDetails(
-					mediaId, properties));
+			MovieDetail item = this.index.getMovie(mediaId);
+
+			if (item == null) {
+				String[] properties = this.getMovieProperties(profile);
+				item = this.xbmcJson.getResult(new GetMovieDetails(
+						mediaId, properties));
+
+				if (item != null && profile == XbmcProjection.DETAIL) {
+					this.index.putMovie(item);
+				}
+			}
+
 			result = this.getMovie(item);
 		}
 
@@ -198,15 +810,25 @@ public class XbmcLibrary implements ILibrary {
 	/**
 	 * Get episode tvshow from xbmc json-rpc.
 	 * @param mediaId Id of the tvshow to find
+	 * @param profile Properties to load if not indexed
 	 * @return {@link Media}
 	 */
-	private Media getTvshowEpisode(int mediaId) {
+	private Media getTvshowEpisode(int mediaId, XbmcProjection profile) {
 		Media result = null;
 
 		if (mediaId > 0) {
-			String[] properties = this.getTvshowEpisodeProperties();
-			EpisodeDetail item = this.xbmcJson.getResult(new GetEpisodeDetails(
-					mediaId, properties));
+			EpisodeDetail item = this.index.getEpisode(mediaId);
+
+			if (item == null) {
+				String[] properties = this.getTvshowEpisodeProperties(profile);
+				item = this.xbmcJson.getResult(new GetEpisodeDetails(
+						mediaId, properties));
+
+				if (item != null && profile == XbmcProjection.DETAIL) {
+					this.index.putEpisode(item);
+				}
+			}
+
 			result = this.getTvshowEpisode(item);
 		}
 
@@ -216,15 +838,25 @@ public class XbmcLibrary implements ILibrary {
 	/**
      * Get song from xbmc json-rpc.
      * @param mediaId Id of the song to find
+     * @param profile Properties to load if not indexed
      * @return {@link Media}
      */
-    private Media getAudioSong(int mediaId) {
+    private Media getAudioSong(int mediaId, XbmcProjection profile) {
         Media result = null;
 
         if (mediaId > 0) {
-            String[] properties = this.getAudioSongProperties();
-            SongDetail item = this.xbmcJson.getResult(new AudioLibrary.GetSongDetails(
-                    mediaId, properties));
+            SongDetail item = this.index.getSong(mediaId);
+
+            if (item == null) {
+                String[] properties = this.getAudioSongProperties(profile);
+                item = this.xbmcJson.getResult(new AudioLibrary.GetSongDetails(
+                        mediaId, properties));
+
+                if (item != null && profile == XbmcProjection.DETAIL) {
+                    this.index.putSong(item);
+                }
+            }
+
             result = this.getAudioSong(item);
         }
 
@@ -234,15 +866,25 @@ public class XbmcLibrary implements ILibrary {
     /**
      * Get album from xbmc json-rpc.
      * @param mediaId Id of the album to find
+     * @param profile Properties to load if not indexed
      * @return {@link Media}
      */
-    private Media getAudioAlbum(int mediaId) {
+    private Media getAudioAlbum(int mediaId, XbmcProjection profile) {
         Media result = null;
 
         if (mediaId > 0) {
-            String[] properties = this.getAudioAlbumProperties();
-            AlbumDetail item = this.xbmcJson.getResult(new AudioLibrary.GetAlbumDetails(
-                    mediaId, properties));
+            AlbumDetail item = this.index.getAlbum(mediaId);
+
+            if (item == null) {
+                String[] properties = this.getAudioAlbumProperties(profile);
+                item = this.xbmcJson.getResult(new AudioLibrary.GetAlbumDetails(
+                        mediaId, properties));
+
+                if (item != null && profile == XbmcProjection.DETAIL) {
+                    this.index.putAlbum(item);
+                }
+            }
+
             result = this.getAudioAlbum(item);
         }
 
@@ -253,9 +895,10 @@ public class XbmcLibrary implements ILibrary {
 	 * Get movies from xbmc json-rpc.
 	 * @param item {@link Media} with value for filtering
 	 * @param limits Limits for the results list
+	 * @param profile Properties to load
 	 * @return List of {@link Media}
 	 */
-	private List<Media> getMovies(Movie item, Limits limits) {
+	private List<Media> getMovies(Movie item, Limits limits, XbmcProjection profile) {
 		List<Media> result = new ArrayList<Media>();
 		List<MovieFilter> filters = new ArrayList<MovieFilter>();
 		MovieFilter filter = null;
@@ -302,13 +945,16 @@ public class XbmcLibrary implements ILibrary {
 		}
 
 		Sort sort = new Sort(false, "label", "ascending");
-		String[] properties = this.getMovieProperties();
+		String[] properties = this.getMovieProperties(profile);
 
 		List<MovieDetail> items = this.xbmcJson.getResults(new GetMovies(
 				limits, sort, filter, properties));
 
 		if (items != null) {
     		for (MovieDetail itemDetail : items) {
+    		    if (profile == XbmcProjection.DETAIL) {
+    		        this.index.putMovie(itemDetail);
+    		    }
     		    result.add(this.getMovie(itemDetail));
 			}
 		}
@@ -327,13 +973,15 @@ public class XbmcLibrary implements ILibrary {
 	 * Get episodes tvshow from xbmc json-rpc.
 	 * @param item {@link Media} with value for filtering
 	 * @param limits Limits for the results list
+	 * @param profile Properties to load
 	 * @return List of {@link Media}
 	 */
-	private List<Media> getTvshowEpisodes(Tvshow item, Limits limits) {
+	private List<Media> getTvshowEpisodes(Tvshow item, Limits limits, XbmcProjection profile) {
 		List<Media> result = new ArrayList<Media>();
 		List<EpisodeFilter> filters = new ArrayList<EpisodeFilter>();
 		EpisodeFilter filter = null;
 		String showtitle = item.getShowtitle();
+		int tvshowid = item.getTvshowid();
 		int season = item.getSeason();
 		int episode = item.getEpisode();
 		int playcount = item.getPlaycount();
@@ -354,7 +1002,7 @@ public class XbmcLibrary implements ILibrary {
 
 		if (episode > 0) {
 			filters.add(new EpisodeFilter(new EpisodeFilterRule("is",
-					new Value(String.valueOf(season)), "episode")));
+					new Value(String.valueOf(episode)), "episode")));
 		}
 
 		if (playcount > 0) {
@@ -362,13 +1010,40 @@ public class XbmcLibrary implements ILibrary {
 					new Value(String.valueOf(playcount)), "playcount")));
 		}
 
+		// Season cache holds listing properties only.
+		if (profile == XbmcProjection.LIST
+				&& tvshowid > 0 && season > 0 && episode <= 0 && playcount <= 0
+				&& Strings.isNullOrEmpty(showtitle) && limits == null) {
+			return this.getSeasonEpisodes(tvshowid, season);
+		}
+
 		if (!filters.isEmpty()) {
 			filter = new EpisodeFilter(new EpisodeFilter.And(filters));
 		}
 
-		String[] properties = this.getTvshowEpisodeProperties();
-		List<EpisodeDetail> items = this.xbmcJson.getResults(new GetEpisodes(
-				limits, filter, properties));
+		List<EpisodeDetail> items = null;
+		boolean wholeTvshow = tvshowid > 0 && filter == null && limits == null;
+
+		if (wholeTvshow) {
+			items = this.index.getTvshowEpisodes(tvshowid);
+		}
+
+		if (items == null) {
+			String[] properties = this.getTvshowEpisodeProperties(profile);
+			items = this.xbmcJson.getResults(new GetEpisodes(
+					tvshowid > 0 ? tvshowid : null, null, limits, null, filter, properties));
+
+			// Only full details are indexed.
+			if (items != null && profile == XbmcProjection.DETAIL) {
+				for (EpisodeDetail itemDetail : items) {
+					this.index.putEpisode(itemDetail);
+				}
+
+				if (wholeTvshow) {
+					this.index.setTvshowComplete(tvshowid);
+				}
+			}
+		}
 
 		if (items != null) {
 			for (EpisodeDetail itemDetail : items) {
@@ -379,13 +1054,131 @@ public class XbmcLibrary implements ILibrary {
 		return result;
 	}
 
+	/**
+	 * Get seasons of a tvshow from xbmc json-rpc.
+	 * @param tvshowid Id of the tvshow
+	 * @return List of {@link Media}, one per season
+	 */
+	private List<Media> getTvshowSeasons(int tvshowid) {
+		List<Media> result = new ArrayList<Media>();
+		List<SeasonDetail> items = this.index.getSeasons(tvshowid);
+
+		if (items == null && tvshowid > 0) {
+			items = this.xbmcJson.getResults(new GetSeasons(
+					tvshowid,
+					new Sort(false, "label", "ascending"),
+					this.getTvshowSeasonProperties()));
+
+			if (items != null) {
+				this.index.putSeasons(tvshowid, items);
+			}
+		}
+
+		if (items != null) {
+			for (SeasonDetail itemDetail : items) {
+				result.add(this.getTvshowSeason(itemDetail));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get episodes of a season from xbmc json-rpc, with listing properties
+	 * only. Episodes of the previous and next seasons are loaded in background.
+	 * @param tvshowid Id of the tvshow
+	 * @param season Number of the season
+	 * @return List of {@link Media}
+	 */
+	private List<Media> getSeasonEpisodes(int tvshowid, int season) {
+		List<Media> result = new ArrayList<Media>();
+		List<EpisodeDetail> items = this.loadSeasonEpisodes(tvshowid, season);
+
+		if (items != null) {
+			for (EpisodeDetail itemDetail : items) {
+				result.add(this.getTvshowEpisode(itemDetail));
+			}
+		}
+
+		this.prefetchSeasons(tvshowid, season);
+
+		return result;
+	}
+
+	/**
+	 * @param tvshowid Id of the tvshow
+	 * @param season Number of the season
+	 * @return Episode listing of the season, from index when loaded
+	 */
+	private List<EpisodeDetail> loadSeasonEpisodes(int tvshowid, int season) {
+		List<EpisodeDetail> items = this.index.getSeasonEpisodes(tvshowid, season);
+
+		if (items == null) {
+			items = this.xbmcJson.getResults(new GetEpisodes(
+					tvshowid,
+					season,
+					new Sort(false, "episode", "ascending"),
+					this.getTvshowEpisodeListProperties()));
+
+			if (items != null) {
+				this.index.putSeasonEpisodes(tvshowid, season, items);
+			}
+		}
+
+		return items;
+	}
+
+	/**
+	 * Load episodes of the seasons around a season in background.
+	 * @param tvshowid Id of the tvshow
+	 * @param season Number of the browsed season
+	 */
+	private void prefetchSeasons(final int tvshowid, final int season) {
+		List<SeasonDetail> seasons = this.index.getSeasons(tvshowid);
+		final List<Integer> neighbours = new ArrayList<Integer>(2);
+
+		for (int neighbour : new int[] { season + 1, season - 1 }) {
+			boolean exists = neighbour > 0;
+
+			if (exists && seasons != null) {
+				exists = false;
+
+				for (SeasonDetail detail : seasons) {
+					exists |= detail.season != null && detail.season == neighbour;
+				}
+			}
+
+			if (exists && this.index.getSeasonEpisodes(tvshowid, neighbour) == null) {
+				neighbours.add(neighbour);
+			}
+		}
+
+		if (neighbours.isEmpty() || this.executor == null) {
+			return;
+		}
+
+		try {
+			this.executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					for (int neighbour : neighbours) {
+						XbmcLibrary.this.loadSeasonEpisodes(tvshowid, neighbour);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Node is shutting down.
+		}
+	}
+
 	/**
 	 * Get tvshows from xbmc json-rpc
 	 * @param item {@link Media} with value for filtering
 	 * @param limits Limits for the results list
+	 * @param profile Properties to load
 	 * @return List of {@link Media}
 	 */
-	private List<Media> getTvshows(Media item, Limits limits) {
+	private List<Media> getTvshows(Media item, Limits limits, XbmcProjection profile) {
 		List<Media> result = new ArrayList<Media>();
 		List<TVShowFilter> filters = new ArrayList<TVShowFilter>();
 		TVShowFilter filter = null;
@@ -405,13 +1198,16 @@ public class XbmcLibrary implements ILibrary {
 		}
 
 		Sort sort = new Sort(false, "label", "ascending");
-		String[] properties = this.getTvshowProperties();
+		String[] properties = this.getTvshowProperties(profile);
 
 		List<TVShowDetail> items = this.xbmcJson.getResults(new GetTVShows(
 				limits, sort, filter, properties));
 
 		if (items != null) {
     		for (TVShowDetail itemDetail : items) {
+    			if (profile == XbmcProjection.DETAIL) {
+    			    this.index.putTvshow(itemDetail);
+    			}
     			result.add(this.getTvshow(itemDetail));
     		}
 		}
@@ -423,13 +1219,15 @@ public class XbmcLibrary implements ILibrary {
      * Get songs from xbmc json-rpc.
      * @param item {@link Media} with value for filtering
      * @param limits Limits for the results list
+     * @param profile Properties to load
      * @return List of {@link Media}
      */
-    private List<Media> getAudioSongs(Media item, Limits limits) {
+    private List<Media> getAudioSongs(Song item, Limits limits, XbmcProjection profile) {
         List<Media> result = new ArrayList<Media>();
         List<SongFilter> filters = new ArrayList<SongFilter>();
         SongFilter filter = null;
         String showtitle = item.getTitle();
+        int albumid = item.getAlbumid();
         int playcount = item.getPlaycount();
 
         if (!Strings.isNullOrEmpty(showtitle)) {
@@ -450,9 +1248,32 @@ public class XbmcLibrary implements ILibrary {
             filter = new SongFilter(new SongFilter.And(filters));
         }
 
-        String[] properties = this.getAudioSongProperties();
-        List<SongDetail> items = this.xbmcJson.getResults(new AudioLibrary.GetSongs(
-                limits, filter, properties));
+        List<SongDetail> items = null;
+
+        if (albumid > 0 && filter == null && limits == null) {
+            items = this.getAlbumSongs(albumid, profile);
+        } else if (albumid > 0 && filter == null) {
+            // Album songs, paged by xbmc.
+            String[] properties = this.getAudioSongProperties(profile);
+            items = this.xbmcJson.getResults(new AudioLibrary.GetSongs(
+                    limits, null, new AudioLibrary.GetSongs.FilterAlbumId(albumid), properties));
+        } else if (albumid > 0) {
+            // List.Filter.Songs has no album id field : songs of the album
+            // (a few dozens) are filtered and paged here.
+            items = filterSongs(this.getAlbumSongs(albumid, profile),
+                    Strings.isNullOrEmpty(showtitle) ? new String[0] : showtitle.split(" "),
+                    playcount, limits);
+        } else {
+            String[] properties = this.getAudioSongProperties(profile);
+            items = this.xbmcJson.getResults(new AudioLibrary.GetSongs(
+                    limits, filter, properties));
+        }
+
+        if (items != null && profile == XbmcProjection.DETAIL) {
+            for (SongDetail itemDetail : items) {
+                this.index.putSong(itemDetail);
+            }
+        }
 
         if (items != null) {
             for (SongDetail itemDetail : items) {
@@ -463,13 +1284,82 @@ public class XbmcLibrary implements ILibrary {
         return result;
     }
 
+    /**
+     * Get all songs of an album, from index when the album is complete.
+     * @param albumid Id of the album
+     * @param profile Properties to load
+     * @return Songs of the album, null if the request failed
+     */
+    private List<SongDetail> getAlbumSongs(int albumid, XbmcProjection profile) {
+        List<SongDetail> result = this.index.getAlbumSongs(albumid);
+
+        if (result == null) {
+            String[] properties = this.getAudioSongProperties(profile);
+            result = this.xbmcJson.getResults(new AudioLibrary.GetSongs(
+                    null, null, new AudioLibrary.GetSongs.FilterAlbumId(albumid), properties));
+
+            if (result != null && profile == XbmcProjection.DETAIL) {
+                for (SongDetail itemDetail : result) {
+                    this.index.putSong(itemDetail);
+                }
+
+                this.index.setAlbumComplete(albumid);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Apply title and playcount rules of a song filter, then limits.
+     * @param songs Songs to filter, may be null
+     * @param titleParts Parts the title contains, ignoring case
+     * @param playcount Playcount of songs, ignored if 0
+     * @param limits Limits for the results list, may be null
+     * @return Filtered songs, null if songs is null
+     */
+    private static List<SongDetail> filterSongs(List<SongDetail> songs, String[] titleParts,
+            int playcount, Limits limits) {
+        if (songs == null) {
+            return null;
+        }
+
+        List<SongDetail> result = new ArrayList<SongDetail>();
+
+        for (SongDetail song : songs) {
+            boolean match = playcount <= 0
+                    || (song.playcount != null && song.playcount == playcount);
+            String title = Strings.nullToEmpty(song.title).toLowerCase();
+
+            for (int i = 0; i < titleParts.length && match; i++) {
+                match = title.contains(titleParts[i].toLowerCase());
+            }
+
+            if (match) {
+                result.add(song);
+            }
+        }
+
+        if (limits != null) {
+            int start = limits.start == null ? 0 : Math.max(0, limits.start);
+            int end = limits.end == null || limits.end < 0 ? result.size()
+                    : Math.min(result.size(), limits.end);
+            result = start < end
+                    ? new ArrayList<SongDetail>(result.subList(start, end))
+                    : new ArrayList<SongDetail>();
+        }
+
+        return result;
+    }
+
     /**
      * Get albums from xbmc json-rpc.
      * @param item {@link Media} with value for filtering
      * @param limits Limits for the results list
+     * @param profile Properties to load
      * @return List of {@link Media}
      */
-    private List<Media> getAudioAlbums(Album item, Limits limits) {
+    private List<Media> getAudioAlbums(Album item, Limits limits, XbmcProjection profile) {
         List<Media> result = new ArrayList<Media>();
         List<AlbumFilter> filters = new ArrayList<AlbumFilter>();
         AlbumFilter filter = null;
@@ -494,12 +1384,15 @@ public class XbmcLibrary implements ILibrary {
             filter = new AlbumFilter(new AlbumFilter.And(filters));
         }
 
-        String[] properties = this.getAudioAlbumProperties();
+        String[] properties = this.getAudioAlbumProperties(profile);
         List<AlbumDetail> items = this.xbmcJson.getResults(new AudioLibrary.GetAlbums(
                 limits, filter, properties));
 
         if (items != null) {
             for (AlbumDetail itemDetail : items) {
+                if (profile == XbmcProjection.DETAIL) {
+                    this.index.putAlbum(itemDetail);
+                }
                 result.add(this.getAudioAlbum(itemDetail));
             }
         }
@@ -576,6 +1469,145 @@ public class XbmcLibrary implements ILibrary {
 				String.class);
 	}
 
+	/**
+	 * @param profile Projection profile
+	 * @return List of movie item properties of the profile
+	 */
+	String[] getMovieProperties(XbmcProjection profile) {
+		String[] properties;
+
+		switch (profile) {
+		case LIST:
+			properties = new String[] { "title", "year", "rating", "playcount",
+					"runtime", "thumbnail", "genre", "setid" };
+			break;
+		case PLAYBACK:
+			properties = new String[] { "title", "year", "playcount", "runtime",
+					"file", "resume", "streamdetails", "thumbnail", "fanart",
+					"lastplayed" };
+			break;
+		default:
+			properties = this.getMovieProperties();
+			break;
+		}
+
+		return properties;
+	}
+
+	/**
+	 * @param profile Projection profile
+	 * @return List of tvshow item properties of the profile
+	 */
+	private String[] getTvshowProperties(XbmcProjection profile) {
+		String[] properties;
+
+		switch (profile) {
+		case LIST:
+		case PLAYBACK:
+			properties = new String[] { "title", "year", "playcount",
+					"thumbnail", "episode", "season", "watchedepisodes" };
+			break;
+		default:
+			properties = this.getTvshowProperties();
+			break;
+		}
+
+		return properties;
+	}
+
+	/**
+	 * @param profile Projection profile
+	 * @return List of episode tvshow item properties of the profile
+	 */
+	String[] getTvshowEpisodeProperties(XbmcProjection profile) {
+		String[] properties;
+
+		switch (profile) {
+		case LIST:
+			properties = this.getTvshowEpisodeListProperties();
+			break;
+		case PLAYBACK:
+			properties = ObjectArrays.concat(this.getTvshowEpisodeListProperties(),
+					new String[] { "file", "resume", "streamdetails", "fanart" },
+					String.class);
+			break;
+		default:
+			properties = this.getTvshowEpisodeProperties();
+			break;
+		}
+
+		return properties;
+	}
+
+	/**
+	 * @param profile Projection profile
+	 * @return List of song item properties of the profile
+	 */
+	String[] getAudioSongProperties(XbmcProjection profile) {
+		String[] properties;
+
+		switch (profile) {
+		case LIST:
+			properties = new String[] { "title", "artist", "album", "albumid",
+					"track", "duration", "year", "playcount", "thumbnail" };
+			break;
+		case PLAYBACK:
+			properties = new String[] { "title", "artist", "album", "albumid",
+					"track", "duration", "year", "playcount", "thumbnail",
+					"fanart", "file", "lastplayed" };
+			break;
+		default:
+			properties = this.getAudioSongProperties();
+			break;
+		}
+
+		return properties;
+	}
+
+	/**
+	 * @param profile Projection profile
+	 * @return List of album item properties of the profile
+	 */
+	String[] getAudioAlbumProperties(XbmcProjection profile) {
+		String[] properties;
+
+		switch (profile) {
+		case LIST:
+		case PLAYBACK:
+			properties = new String[] { "title", "artist", "displayartist",
+					"year", "playcount", "thumbnail" };
+			break;
+		default:
+			properties = this.getAudioAlbumProperties();
+			break;
+		}
+
+		return properties;
+	}
+
+	/**
+	 *
+	 * @return List of tvshow season properties
+	 */
+	private String[] getTvshowSeasonProperties() {
+		String[] properties = { "season", "showtitle", "tvshowid", "episode",
+				"watchedepisodes", "playcount", "thumbnail", "fanart" };
+
+		return properties;
+	}
+
+	/**
+	 *
+	 * @return List of episode tvshow properties for listings
+	 */
+	String[] getTvshowEpisodeListProperties() {
+		String[] properties = { "title", "season", "episode", "showtitle",
+				"tvshowid", "playcount", "runtime", "thumbnail", "firstaired",
+				"lastplayed" };
+
+		return properties;
+	}
+
 	/**
      *
      * @return List of song item properties
@@ -616,8 +1648,8 @@ public class XbmcLibrary implements ILibrary {
 			// Video.Cast cast
 			// Video.Streams streamdetails
 			video.setLastplayed(media.lastplayed);
-			video.setFanart(XbmcUtils.getImageUrl(media.fanart));
-			video.setThumbnail(XbmcUtils.getImageUrl(media.thumbnail));
+			video.setFanart(this.artwork.getImageUrl(media.fanart));
+			video.setThumbnail(this.artwork.getImageUrl(media.thumbnail));
 			video.setFile(media.file);
 			// #video.resume.position = media["resume"]["position"]
 			// #video.resume.total = media["resume"]["total"]
@@ -644,7 +1676,7 @@ public class XbmcLibrary implements ILibrary {
 	 * @param media {@link MovieDetail} rpc
 	 * @return Get {@link Media} from {@link MovieDetail} rpc
 	 */
-	private Media getMovie(MovieDetail media) {
+	Media getMovie(MovieDetail media) {
 		Movie movie = new Movie();
 
 		if (media != null) {
@@ -694,12 +1726,35 @@ public class XbmcLibrary implements ILibrary {
 		return tvshow;
 	}
 
+	/**
+	 * Convert {@link SeasonDetail} to {@link Media}.
+	 * @param media {@link SeasonDetail} rpc
+	 * @return Get {@link Media} from {@link SeasonDetail} rpc
+	 */
+	private Media getTvshowSeason(SeasonDetail media) {
+		Tvshow tvshow = new Tvshow();
+
+		if (media != null) {
+			tvshow.setMediaid(media.tvshowid);
+			tvshow.setTvshowid(media.tvshowid);
+			tvshow.setTitle(media.label);
+			tvshow.setShowtitle(media.showtitle);
+			tvshow.setSeason(media.season);
+			tvshow.setEpisode(media.episode);
+			tvshow.setPlaycount(media.playcount);
+			tvshow.setFanart(this.artwork.getImageUrl(media.fanart));
+			tvshow.setThumbnail(this.artwork.getImageUrl(media.thumbnail));
+		}
+
+		return tvshow;
+	}
+
 	/**
 	 * Convert {@link EpisodeDetail} to {@link Media}.
 	 * @param media {@link EpisodeDetail} rpc
 	 * @return Get {@link Media} from {@link EpisodeDetail} rpc
 	 */
-	private Media getTvshowEpisode(EpisodeDetail media) {
+	Media getTvshowEpisode(EpisodeDetail media) {
 		Tvshow tvshow = new Tvshow();
 
 		if (media != null) {
@@ -727,7 +1782,7 @@ public class XbmcLibrary implements ILibrary {
      * @param media {@link SongDetail} rpc
      * @return Get {@link Media} from {@link SongDetail} rpc
      */
-    private Media getAudioSong(SongDetail media) {
+    Media getAudioSong(SongDetail media) {
         Song song = new Song();
 
         if (media != null) {
@@ -783,7 +1838,7 @@ public class XbmcLibrary implements ILibrary {
      * @param media {@link AlbumDetail} rpc
      * @return Get {@link Media} from {@link AlbumDetail} rpc
      */
-    private Media getAudioAlbum(AlbumDetail media) {
+    Media getAudioAlbum(AlbumDetail media) {
         Album album = new Album();
 
         if (media != null) {
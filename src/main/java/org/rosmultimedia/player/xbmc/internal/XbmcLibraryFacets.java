@@ -0,0 +1,234 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.rosmultimedia.player.xbmc.IXbmcNode;
+import org.rosmultimedia.player.xbmc.jsonrpc.XbmcJson;
+import org.xbmc.android.jsonrpc.api.call.AudioLibrary;
+import org.xbmc.android.jsonrpc.api.call.VideoLibrary;
+import org.xbmc.android.jsonrpc.api.model.AudioModel.SongDetail;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.MovieDetail;
+
+import com.google.common.base.Strings;
+
+import smarthome_media_msgs.MediaType;
+
+/**
+ * Facets of xbmc library : movies by genre, year, studio and set, songs by
+ * artist, genre and year.
+ *
+ * Facets are computed from one listing of movies and one of songs with only
+ * the facet properties, refreshed in background. A facet value keeps the
+ * number of its items, so counts need no request to xbmc. Items of a value
+ * are browsed with a filter on the facet.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcLibraryFacets {
+    public static final String FACET_ARTIST = "artist";
+    public static final String FACET_GENRE = "genre";
+    public static final String FACET_YEAR = "year";
+    public static final String FACET_STUDIO = "studio";
+    public static final String FACET_SET = "set";
+
+    private static final long REFRESH_PERIOD = 900;
+
+    private static final String[] MOVIE_PROPERTIES = {
+        FACET_GENRE, FACET_YEAR, FACET_STUDIO, FACET_SET
+    };
+
+    private static final String[] SONG_PROPERTIES = {
+        FACET_ARTIST, FACET_GENRE, FACET_YEAR
+    };
+
+    /**
+     * Xbmc node.
+     */
+    private final IXbmcNode xbmcNode;
+
+    /**
+     * Xbmc json-rpc.
+     */
+    private final XbmcJson xbmcJson;
+
+    /**
+     * Item counts by value, by facet, by media type. Replaced on each refresh.
+     */
+    private volatile Map<String, Map<String, TreeMap<String, Integer>>> facets =
+            Collections.emptyMap();
+
+    /**
+     * XbmcLibraryFacets constructor.
+     * @param xbmcJson {@link XbmcJson} xbmc json-rpc
+     * @param node {@link IXbmcNode} xbmc node
+     */
+    public XbmcLibraryFacets(XbmcJson xbmcJson, IXbmcNode node) {
+        this.xbmcJson = xbmcJson;
+        this.xbmcNode = node;
+    }
+
+    /**
+     * Schedule background refresh of the facets.
+     * @param scheduler Scheduler of background tasks
+     * @return Periodic refresh, cancelled on shutdown
+     */
+    public ScheduledFuture<?> start(ScheduledExecutorService scheduler) {
+        return scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                if (XbmcLibraryFacets.this.xbmcJson.getHealth().isAvailable()) {
+                    XbmcLibraryFacets.this.refresh();
+                }
+            }
+        }, REFRESH_PERIOD, REFRESH_PERIOD, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Load facets from xbmc. Facets of a media type are kept if its listing
+     * fails.
+     */
+    public void refresh() {
+        long start = System.currentTimeMillis();
+        Map<String, Map<String, TreeMap<String, Integer>>> result =
+                new HashMap<String, Map<String, TreeMap<String, Integer>>>(this.facets);
+
+        List<MovieDetail> movies = this.xbmcJson.getResults(
+                new VideoLibrary.GetMovies(MOVIE_PROPERTIES));
+
+        if (movies != null) {
+            Map<String, TreeMap<String, Integer>> movieFacets = newFacets(MOVIE_PROPERTIES);
+
+            for (MovieDetail movie : movies) {
+                add(movieFacets.get(FACET_GENRE), movie.genre);
+                add(movieFacets.get(FACET_STUDIO), movie.studio);
+                add(movieFacets.get(FACET_YEAR), movie.year);
+                add(movieFacets.get(FACET_SET), movie.set);
+            }
+
+            result.put(MediaType.VIDEO_MOVIE, movieFacets);
+        }
+
+        List<SongDetail> songs = this.xbmcJson.getResults(
+                new AudioLibrary.GetSongs(SONG_PROPERTIES));
+
+        if (songs != null) {
+            Map<String, TreeMap<String, Integer>> songFacets = newFacets(SONG_PROPERTIES);
+
+            for (SongDetail song : songs) {
+                add(songFacets.get(FACET_ARTIST), song.artist);
+                add(songFacets.get(FACET_GENRE), song.genre);
+                add(songFacets.get(FACET_YEAR), song.year);
+            }
+
+            result.put(MediaType.AUDIO_SONG, songFacets);
+        }
+
+        this.facets = result;
+
+        this.xbmcNode.logI(String.format("Library facets : %d movies, %d songs in %dms",
+                movies == null ? 0 : movies.size(),
+                songs == null ? 0 : songs.size(),
+                System.currentTimeMillis() - start));
+    }
+
+    /**
+     * @param mediaType Type of the items ({@link MediaType} value)
+     * @param facet Name of the facet
+     * @return true if the facet exists for the media type
+     */
+    public static boolean isFacet(String mediaType, String facet) {
+        String[] facets = null;
+
+        if (MediaType.VIDEO_MOVIE.equals(mediaType)) {
+            facets = MOVIE_PROPERTIES;
+        } else if (MediaType.AUDIO_SONG.equals(mediaType)) {
+            facets = SONG_PROPERTIES;
+        }
+
+        return facets != null && Arrays.asList(facets).contains(facet);
+    }
+
+    /**
+     * @return true if facets were loaded
+     */
+    public boolean isLoaded() {
+        return !this.facets.isEmpty();
+    }
+
+    /**
+     * @param mediaType Type of the items ({@link MediaType} value)
+     * @param facet Name of the facet
+     * @return Number of items by value, in value order
+     */
+    public Map<String, Integer> getCounts(String mediaType, String facet) {
+        TreeMap<String, Integer> values = this.getValues(mediaType, facet);
+        Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+
+        result.putAll(values);
+
+        return result;
+    }
+
+    private TreeMap<String, Integer> getValues(String mediaType, String facet) {
+        Map<String, TreeMap<String, Integer>> byFacet = this.facets.get(mediaType);
+        TreeMap<String, Integer> result = null;
+
+        if (byFacet != null) {
+            result = byFacet.get(facet);
+        }
+
+        return result == null ? new TreeMap<String, Integer>() : result;
+    }
+
+    private static Map<String, TreeMap<String, Integer>> newFacets(String[] names) {
+        Map<String, TreeMap<String, Integer>> result =
+                new HashMap<String, TreeMap<String, Integer>>();
+
+        for (String name : names) {
+            result.put(name, new TreeMap<String, Integer>());
+        }
+
+        return result;
+    }
+
+    private static void add(TreeMap<String, Integer> facet, List<String> values) {
+        if (values != null) {
+            for (String value : values) {
+                add(facet, value);
+            }
+        }
+    }
+
+    private static void add(TreeMap<String, Integer> facet, Integer value) {
+        if (value != null && value > 0) {
+            add(facet, String.valueOf(value));
+        }
+    }
+
+    private static void add(TreeMap<String, Integer> facet, String value) {
+        if (Strings.isNullOrEmpty(value)) {
+            return;
+        }
+
+        Integer count = facet.get(value);
+        facet.put(value, count == null ? 1 : count + 1);
+    }
+}
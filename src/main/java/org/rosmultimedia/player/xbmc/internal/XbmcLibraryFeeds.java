@@ -0,0 +1,438 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+import org.rosmultimedia.player.media.model.Media;
+import org.rosmultimedia.player.xbmc.IXbmcNode;
+import org.rosmultimedia.player.xbmc.jsonrpc.XbmcJson;
+import org.xbmc.android.jsonrpc.api.AbstractCall;
+import org.xbmc.android.jsonrpc.api.call.AudioLibrary;
+import org.xbmc.android.jsonrpc.api.call.VideoLibrary;
+import org.xbmc.android.jsonrpc.api.model.AudioModel.AlbumDetail;
+import org.xbmc.android.jsonrpc.api.model.AudioModel.SongDetail;
+import org.xbmc.android.jsonrpc.api.model.ListModel.EpisodeFilter;
+import org.xbmc.android.jsonrpc.api.model.ListModel.EpisodeFilterRule;
+import org.xbmc.android.jsonrpc.api.model.ListModel.FilterRule;
+import org.xbmc.android.jsonrpc.api.model.ListModel.FilterRule.Value;
+import org.xbmc.android.jsonrpc.api.model.ListModel.Limits;
+import org.xbmc.android.jsonrpc.api.model.ListModel.MovieFilter;
+import org.xbmc.android.jsonrpc.api.model.ListModel.MovieFilterRule;
+import org.xbmc.android.jsonrpc.api.model.ListModel.Sort;
+import org.xbmc.android.jsonrpc.api.model.ListModel.TVShowFilter;
+import org.xbmc.android.jsonrpc.api.model.ListModel.TVShowFilterRule;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.EpisodeDetail;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.FileDetail;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.MovieDetail;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.TVShowDetail;
+
+import com.google.common.base.Strings;
+
+import smarthome_media_msgs.MediaGetItemsRequest;
+import smarthome_media_msgs.MediaGetItemsResponse;
+import smarthome_media_msgs.MediaItem;
+import smarthome_media_msgs.MediaType;
+
+/**
+ * Feeds of xbmc library : recently added movies and episodes, recently played
+ * songs and albums, movies and episodes in progress, next unwatched episode
+ * of tvshows in progress.
+ *
+ * Feeds are loaded in background, on library change and playback stop
+ * notifications and periodically, and served from memory. Items of a feed
+ * are kept serialized, with the resume point for items in progress.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcLibraryFeeds {
+    public static final String FEED_RECENTLY_ADDED = "recently_added";
+    public static final String FEED_RECENTLY_PLAYED = "recently_played";
+    public static final String FEED_IN_PROGRESS = "in_progress";
+    public static final String FEED_NEXT_EPISODE = "next_episode";
+
+    /**
+     * Maximum number of items of a feed.
+     */
+    private static final int FEED_SIZE = 25;
+
+    private static final long REFRESH_PERIOD = 900;
+
+    /**
+     * Delay of a refresh after a notification, notifications of a scan or
+     * of a playback stop come in bursts.
+     */
+    private static final long REFRESH_DELAY = 2;
+
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    private static final String[] TVSHOW_PROPERTIES = { "title" };
+
+    /**
+     * Serialized item of a feed.
+     */
+    private static final class Entry {
+        private final String mediaType;
+        private final int mediaid;
+        private final String json;
+
+        private Entry(String mediaType, int mediaid, String json) {
+            this.mediaType = mediaType;
+            this.mediaid = mediaid;
+            this.json = json;
+        }
+    }
+
+    /**
+     * Xbmc node.
+     */
+    private final IXbmcNode xbmcNode;
+
+    /**
+     * Xbmc json-rpc.
+     */
+    private final XbmcJson xbmcJson;
+
+    /**
+     * Library, for conversion of items.
+     */
+    private final XbmcLibrary library;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Entries by feed and media type. Replaced on each refresh.
+     */
+    private volatile Map<String, List<Entry>> feeds = Collections.emptyMap();
+
+    /**
+     * A refresh is scheduled and not started yet.
+     */
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    /**
+     * XbmcLibraryFeeds constructor.
+     * @param xbmcJson {@link XbmcJson} xbmc json-rpc
+     * @param node {@link IXbmcNode} xbmc node
+     * @param library {@link XbmcLibrary} converting items
+     */
+    public XbmcLibraryFeeds(XbmcJson xbmcJson, IXbmcNode node, XbmcLibrary library) {
+        this.xbmcJson = xbmcJson;
+        this.xbmcNode = node;
+        this.library = library;
+    }
+
+    /**
+     * Schedule background refresh of the feeds.
+     * @param scheduler Scheduler of background tasks
+     * @return Periodic refresh, cancelled on shutdown
+     */
+    public ScheduledFuture<?> start(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+        return scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                if (XbmcLibraryFeeds.this.xbmcJson.getHealth().isAvailable()) {
+                    XbmcLibraryFeeds.this.refresh();
+                }
+            }
+        }, REFRESH_PERIOD, REFRESH_PERIOD, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Schedule a refresh of the feeds, library or playback state changed.
+     * Requests received before the refresh starts are merged.
+     */
+    public void requestRefresh() {
+        if (this.scheduler == null || !this.pending.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            this.scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    XbmcLibraryFeeds.this.pending.set(false);
+                    XbmcLibraryFeeds.this.refresh();
+                }
+            }, REFRESH_DELAY, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            this.pending.set(false);
+        }
+    }
+
+    /**
+     * Load feeds from xbmc. A feed is kept if its request fails.
+     */
+    public void refresh() {
+        long start = System.currentTimeMillis();
+        Map<String, List<Entry>> result = new HashMap<String, List<Entry>>(this.feeds);
+        Limits limits = new Limits(FEED_SIZE, 0);
+        Sort lastPlayed = new Sort(false, "lastplayed", Sort.Order.DESCENDING);
+
+        List<MovieDetail> movies = this.xbmcJson.getResults(new VideoLibrary.GetRecentlyAddedMovies(
+                limits, this.library.getMovieProperties(XbmcProjection.LIST)));
+        if (movies != null) {
+            result.put(key(FEED_RECENTLY_ADDED, MediaType.VIDEO_MOVIE), this.toMovieEntries(movies));
+        }
+
+        List<EpisodeDetail> episodes = this.xbmcJson.getResults(new VideoLibrary.GetRecentlyAddedEpisodes(
+                limits, this.library.getTvshowEpisodeProperties(XbmcProjection.LIST)));
+        if (episodes != null) {
+            result.put(key(FEED_RECENTLY_ADDED, MediaType.VIDEO_TVSHOW_EPISODE),
+                    this.toEpisodeEntries(episodes));
+        }
+
+        List<SongDetail> songs = this.xbmcJson.getResults(new AudioLibrary.GetRecentlyPlayedSongs(
+                limits, this.library.getAudioSongProperties(XbmcProjection.LIST)));
+        if (songs != null) {
+            List<Entry> entries = new ArrayList<Entry>(songs.size());
+
+            for (SongDetail song : songs) {
+                entries.add(toEntry(MediaType.AUDIO_SONG, this.library.getAudioSong(song), null));
+            }
+
+            result.put(key(FEED_RECENTLY_PLAYED, MediaType.AUDIO_SONG), entries);
+        }
+
+        List<AlbumDetail> albums = this.xbmcJson.getResults(new AudioLibrary.GetRecentlyPlayedAlbums(
+                limits, this.library.getAudioAlbumProperties(XbmcProjection.LIST)));
+        if (albums != null) {
+            List<Entry> entries = new ArrayList<Entry>(albums.size());
+
+            for (AlbumDetail album : albums) {
+                entries.add(toEntry(MediaType.AUDIO_ALBUM, this.library.getAudioAlbum(album), null));
+            }
+
+            result.put(key(FEED_RECENTLY_PLAYED, MediaType.AUDIO_ALBUM), entries);
+        }
+
+        movies = this.xbmcJson.getResults(new VideoLibrary.GetMovies(
+                limits,
+                lastPlayed,
+                new MovieFilter(new MovieFilterRule(
+                        FilterRule.Operator.TRUE, new Value(""), MovieFilterRule.Field.INPROGRESS)),
+                this.library.getMovieProperties(XbmcProjection.PLAYBACK)));
+        if (movies != null) {
+            result.put(key(FEED_IN_PROGRESS, MediaType.VIDEO_MOVIE), this.toMovieEntries(movies));
+        }
+
+        episodes = this.xbmcJson.getResults(new VideoLibrary.GetEpisodes(
+                limits,
+                lastPlayed,
+                new EpisodeFilter(new EpisodeFilterRule(
+                        FilterRule.Operator.TRUE, new Value(""), EpisodeFilterRule.Field.INPROGRESS)),
+                this.library.getTvshowEpisodeProperties(XbmcProjection.PLAYBACK)));
+        if (episodes != null) {
+            result.put(key(FEED_IN_PROGRESS, MediaType.VIDEO_TVSHOW_EPISODE),
+                    this.toEpisodeEntries(episodes));
+        }
+
+        episodes = this.getNextEpisodes(limits, lastPlayed);
+        if (episodes != null) {
+            result.put(key(FEED_NEXT_EPISODE, MediaType.VIDEO_TVSHOW_EPISODE),
+                    this.toEpisodeEntries(episodes));
+        }
+
+        this.feeds = result;
+
+        this.xbmcNode.logI(String.format("Library feeds : %d feeds in %dms",
+                result.size(), System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Feed items.
+     *
+     * Request data (json) : feed (recently_added, recently_played,
+     * in_progress, next_episode). Without media type, response has the items
+     * of all media types of the feed.
+     * @param request {@link MediaGetItemsRequest} with feed
+     * @param response {@link MediaGetItemsResponse} with items of the feed
+     */
+    public void handleMediaGetItems(MediaGetItemsRequest request,
+            MediaGetItemsResponse response) {
+        this.xbmcNode.logI("Service call MediaGetFeed");
+
+        String mediaType = request.getItem().getMediatype().getValue();
+        String feed = FEED_RECENTLY_ADDED;
+
+        try {
+            String data = request.getItem().getData();
+
+            if (!Strings.isNullOrEmpty(data)) {
+                JsonNode node = OM.readTree(data);
+                feed = node.has("feed") ? node.get("feed").getTextValue() : feed;
+            }
+        } catch (IOException e) {
+            this.xbmcNode.logE(e);
+        }
+
+        List<MediaItem> result = new ArrayList<MediaItem>();
+
+        for (Entry entry : this.getEntries(feed, mediaType)) {
+            MediaItem item = this.xbmcNode.getNewMessageInstance(MediaItem._TYPE);
+            item.setMediaid(entry.mediaid);
+            item.getMediatype().setValue(entry.mediaType);
+            item.setData(entry.json);
+            result.add(item);
+        }
+
+        response.setItems(result);
+    }
+
+    /**
+     * @return true if feeds were loaded
+     */
+    public boolean isLoaded() {
+        return !this.feeds.isEmpty();
+    }
+
+    private List<Entry> getEntries(String feed, String mediaType) {
+        Map<String, List<Entry>> current = this.feeds;
+        List<Entry> result = new ArrayList<Entry>();
+
+        if (Strings.isNullOrEmpty(mediaType)) {
+            for (String type : new String[] {
+                    MediaType.VIDEO_MOVIE, MediaType.VIDEO_TVSHOW_EPISODE,
+                    MediaType.AUDIO_ALBUM, MediaType.AUDIO_SONG }) {
+                List<Entry> entries = current.get(key(feed, type));
+
+                if (entries != null) {
+                    result.addAll(entries);
+                }
+            }
+        } else {
+            List<Entry> entries = current.get(key(feed, mediaType));
+
+            if (entries != null) {
+                result.addAll(entries);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get first unwatched episode of each tvshow in progress, with a single
+     * batch request.
+     * @param limits Limits of tvshows
+     * @param sort Sort of tvshows
+     * @return Next episodes, in tvshow order, null on error
+     */
+    private List<EpisodeDetail> getNextEpisodes(Limits limits, Sort sort) {
+        List<TVShowDetail> tvshows = this.xbmcJson.getResults(new VideoLibrary.GetTVShows(
+                limits,
+                sort,
+                new TVShowFilter(new TVShowFilterRule(
+                        FilterRule.Operator.TRUE, new Value(""), TVShowFilterRule.Field.INPROGRESS)),
+                TVSHOW_PROPERTIES));
+        List<EpisodeDetail> result = null;
+
+        if (tvshows != null) {
+            List<AbstractCall<?>> calls = new ArrayList<AbstractCall<?>>(tvshows.size());
+            // Specials (season 0) are sorted first, skip them.
+            EpisodeFilter unwatched = new EpisodeFilter(new EpisodeFilter.And(Arrays.asList(
+                    new EpisodeFilter(new EpisodeFilterRule(FilterRule.Operator.IS,
+                            new Value("0"), EpisodeFilterRule.Field.PLAYCOUNT)),
+                    new EpisodeFilter(new EpisodeFilterRule(FilterRule.Operator.GREATERTHAN,
+                            new Value("0"), EpisodeFilterRule.Field.SEASON)))));
+
+            for (TVShowDetail tvshow : tvshows) {
+                calls.add(new VideoLibrary.GetEpisodes(
+                        tvshow.tvshowid,
+                        new Limits(1, 0),
+                        new Sort(false, "episode", Sort.Order.ASCENDING),
+                        unwatched,
+                        this.library.getTvshowEpisodeProperties(XbmcProjection.LIST)));
+            }
+
+            this.xbmcJson.executeBatch(calls);
+            result = new ArrayList<EpisodeDetail>(calls.size());
+
+            for (AbstractCall<?> call : calls) {
+                List<?> next = call.getResults();
+
+                if (next != null && !next.isEmpty()) {
+                    result.add((EpisodeDetail) next.get(0));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private List<Entry> toMovieEntries(List<MovieDetail> movies) {
+        List<Entry> result = new ArrayList<Entry>(movies.size());
+
+        for (MovieDetail movie : movies) {
+            result.add(toEntry(MediaType.VIDEO_MOVIE, this.library.getMovie(movie), movie));
+        }
+
+        return result;
+    }
+
+    private List<Entry> toEpisodeEntries(List<EpisodeDetail> episodes) {
+        List<Entry> result = new ArrayList<Entry>(episodes.size());
+
+        for (EpisodeDetail episode : episodes) {
+            result.add(toEntry(MediaType.VIDEO_TVSHOW_EPISODE,
+                    this.library.getTvshowEpisode(episode), episode));
+        }
+
+        return result;
+    }
+
+    /**
+     * @param mediaType Type of the item ({@link MediaType} value)
+     * @param media Converted item
+     * @param file Video item with resume point, may be null
+     * @return Entry of the item, json with resume point when in progress
+     */
+    private static Entry toEntry(String mediaType, Media media, FileDetail file) {
+        String json = media.toJson();
+
+        if (file != null && file.resume != null
+                && file.resume.position != null && file.resume.position > 0) {
+            try {
+                ObjectNode node = (ObjectNode) OM.readTree(json);
+                ObjectNode resume = node.putObject("resume");
+                resume.put("position", file.resume.position.doubleValue());
+
+                if (file.resume.total != null) {
+                    resume.put("total", file.resume.total.doubleValue());
+                }
+
+                json = node.toString();
+            } catch (IOException e) {
+                // Keep item without resume point.
+            }
+        }
+
+        return new Entry(mediaType, media.getMediaid(), json);
+    }
+
+    private static String key(String feed, String mediaType) {
+        return feed + "|" + mediaType;
+    }
+}
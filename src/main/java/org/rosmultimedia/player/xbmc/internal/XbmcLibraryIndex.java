@@ -0,0 +1,493 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.rosmultimedia.player.xbmc.internal.collection.IntHashSet;
+import org.rosmultimedia.player.xbmc.internal.collection.IntObjectMap;
+import org.rosmultimedia.player.xbmc.internal.collection.IntSetMultimap;
+import org.xbmc.android.jsonrpc.api.model.AudioModel.AlbumDetail;
+import org.xbmc.android.jsonrpc.api.model.AudioModel.SongDetail;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.EpisodeDetail;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.MovieDetail;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.SeasonDetail;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.TVShowDetail;
+
+import smarthome_media_msgs.MediaType;
+
+/**
+ * In memory index of xbmc library results, keyed by xbmc ids.
+ *
+ * Ids are kept unboxed, a tvshow groups its episodes and an album groups
+ * its songs.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcLibraryIndex {
+    private final IntObjectMap<MovieDetail> movies = new IntObjectMap<MovieDetail>();
+    private final IntObjectMap<TVShowDetail> tvshows = new IntObjectMap<TVShowDetail>();
+    private final IntObjectMap<EpisodeDetail> episodes = new IntObjectMap<EpisodeDetail>();
+    private final IntObjectMap<SongDetail> songs = new IntObjectMap<SongDetail>();
+    private final IntObjectMap<AlbumDetail> albums = new IntObjectMap<AlbumDetail>();
+
+    /**
+     * Episode ids by tvshow id.
+     */
+    private final IntSetMultimap tvshowEpisodes = new IntSetMultimap();
+
+    /**
+     * Song ids by album id.
+     */
+    private final IntSetMultimap albumSongs = new IntSetMultimap();
+
+    /**
+     * Tvshows for which all episodes were loaded.
+     */
+    private final IntHashSet completeTvshows = new IntHashSet();
+
+    /**
+     * Albums for which all songs were loaded.
+     */
+    private final IntHashSet completeAlbums = new IntHashSet();
+
+    /**
+     * Seasons by tvshow id.
+     */
+    private final IntObjectMap<List<SeasonDetail>> seasons =
+            new IntObjectMap<List<SeasonDetail>>();
+
+    /**
+     * Episode listings (slim properties) by tvshow id, then season number.
+     * Kept apart from the episode details, not saved in snapshots.
+     */
+    private final IntObjectMap<IntObjectMap<List<EpisodeDetail>>> seasonEpisodes =
+            new IntObjectMap<IntObjectMap<List<EpisodeDetail>>>();
+
+    /**
+     * Xbmc ids by external id, of indexed items and of reconciled listings.
+     * Not saved in snapshots, built again from loaded items.
+     */
+    private final XbmcExternalIds externalIds = new XbmcExternalIds();
+
+    /**
+     * Incremented on each change, used to detect unsaved changes.
+     */
+    private long version;
+
+    public synchronized void putMovie(MovieDetail movie) {
+        if (isValidId(movie.movieid)) {
+            this.movies.put(movie.movieid, movie);
+
+            if (movie.imdbnumber != null) {
+                this.externalIds.put(MediaType.VIDEO_MOVIE, movie.movieid, movie.imdbnumber);
+            }
+
+            this.version++;
+        }
+    }
+
+    public synchronized MovieDetail getMovie(int movieid) {
+        return this.movies.get(movieid);
+    }
+
+    public synchronized void putTvshow(TVShowDetail tvshow) {
+        if (isValidId(tvshow.tvshowid)) {
+            this.tvshows.put(tvshow.tvshowid, tvshow);
+
+            if (tvshow.imdbnumber != null) {
+                this.externalIds.put(MediaType.VIDEO_TVSHOW, tvshow.tvshowid, tvshow.imdbnumber);
+            }
+
+            this.version++;
+        }
+    }
+
+    public synchronized TVShowDetail getTvshow(int tvshowid) {
+        return this.tvshows.get(tvshowid);
+    }
+
+    public synchronized void putEpisode(EpisodeDetail episode) {
+        if (isValidId(episode.episodeid)) {
+            EpisodeDetail previous = this.episodes.put(episode.episodeid, episode);
+
+            if (previous != null && isValidId(previous.tvshowid)) {
+                this.tvshowEpisodes.remove(previous.tvshowid, previous.episodeid);
+            }
+
+            if (isValidId(episode.tvshowid)) {
+                this.tvshowEpisodes.put(episode.tvshowid, episode.episodeid);
+            }
+
+            if (episode.uniqueid != null) {
+                this.externalIds.put(MediaType.VIDEO_TVSHOW_EPISODE, episode.episodeid,
+                        episode.uniqueid.values().toArray(new String[episode.uniqueid.size()]));
+            }
+
+            this.version++;
+        }
+    }
+
+    public synchronized EpisodeDetail getEpisode(int episodeid) {
+        return this.episodes.get(episodeid);
+    }
+
+    public synchronized void putSong(SongDetail song) {
+        if (isValidId(song.songid)) {
+            SongDetail previous = this.songs.put(song.songid, song);
+
+            if (previous != null && isValidId(previous.albumid)) {
+                this.albumSongs.remove(previous.albumid, previous.songid);
+            }
+
+            if (isValidId(song.albumid)) {
+                this.albumSongs.put(song.albumid, song.songid);
+            }
+
+            if (song.musicbrainztrackid != null) {
+                this.externalIds.put(MediaType.AUDIO_SONG, song.songid, song.musicbrainztrackid);
+            }
+
+            this.version++;
+        }
+    }
+
+    public synchronized SongDetail getSong(int songid) {
+        return this.songs.get(songid);
+    }
+
+    public synchronized void putAlbum(AlbumDetail album) {
+        if (isValidId(album.albumid)) {
+            this.albums.put(album.albumid, album);
+
+            if (album.musicbrainzalbumid != null) {
+                this.externalIds.put(MediaType.AUDIO_ALBUM, album.albumid, album.musicbrainzalbumid);
+            }
+
+            this.version++;
+        }
+    }
+
+    public synchronized AlbumDetail getAlbum(int albumid) {
+        return this.albums.get(albumid);
+    }
+
+    /**
+     * Set external ids of an item, indexed or not.
+     * @param mediaType Type of the item ({@link MediaType} value)
+     * @param mediaId Id of the item
+     * @param externalIds External ids of the item
+     */
+    public synchronized void putExternalIds(String mediaType, int mediaId, String... externalIds) {
+        this.externalIds.put(mediaType, mediaId, externalIds);
+    }
+
+    /**
+     * @param mediaType Type of the item ({@link MediaType} value)
+     * @param externalId External id of the item (imdb number, MusicBrainz id...)
+     * @return Id of the item, 0 if unknown
+     */
+    public synchronized int getExternalId(String mediaType, String externalId) {
+        return this.externalIds.get(mediaType, externalId);
+    }
+
+    /**
+     * @param externalId External id of an item
+     * @return Type of the item ({@link MediaType} value), null if unknown
+     */
+    public synchronized String getExternalType(String externalId) {
+        return this.externalIds.getType(externalId);
+    }
+
+    /**
+     * Mark all episodes of a tvshow as indexed.
+     * @param tvshowid Id of the tvshow
+     */
+    public synchronized void setTvshowComplete(int tvshowid) {
+        if (isValidId(tvshowid)) {
+            this.completeTvshows.add(tvshowid);
+            this.version++;
+        }
+    }
+
+    /**
+     * @param tvshowid Id of the tvshow
+     * @return Episodes of the tvshow, null if not all episodes are indexed
+     */
+    public synchronized List<EpisodeDetail> getTvshowEpisodes(int tvshowid) {
+        List<EpisodeDetail> result = null;
+
+        if (this.completeTvshows.contains(tvshowid)) {
+            int[] ids = this.tvshowEpisodes.get(tvshowid);
+            result = new ArrayList<EpisodeDetail>(ids.length);
+
+            for (int id : ids) {
+                result.add(this.episodes.get(id));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param tvshowid Id of the tvshow
+     * @param items Seasons of the tvshow
+     */
+    public synchronized void putSeasons(int tvshowid, List<SeasonDetail> items) {
+        if (isValidId(tvshowid)) {
+            this.seasons.put(tvshowid, new ArrayList<SeasonDetail>(items));
+        }
+    }
+
+    /**
+     * @param tvshowid Id of the tvshow
+     * @return Seasons of the tvshow, null if not indexed
+     */
+    public synchronized List<SeasonDetail> getSeasons(int tvshowid) {
+        List<SeasonDetail> result = this.seasons.get(tvshowid);
+        return result == null ? null : new ArrayList<SeasonDetail>(result);
+    }
+
+    /**
+     * @param tvshowid Id of the tvshow
+     * @param season Number of the season
+     * @param items Episode listing of the season
+     */
+    public synchronized void putSeasonEpisodes(int tvshowid, int season, List<EpisodeDetail> items) {
+        if (isValidId(tvshowid)) {
+            IntObjectMap<List<EpisodeDetail>> bySeason = this.seasonEpisodes.get(tvshowid);
+
+            if (bySeason == null) {
+                bySeason = new IntObjectMap<List<EpisodeDetail>>();
+                this.seasonEpisodes.put(tvshowid, bySeason);
+            }
+
+            bySeason.put(season, new ArrayList<EpisodeDetail>(items));
+        }
+    }
+
+    /**
+     * @param tvshowid Id of the tvshow
+     * @param season Number of the season
+     * @return Episode listing of the season, null if not indexed
+     */
+    public synchronized List<EpisodeDetail> getSeasonEpisodes(int tvshowid, int season) {
+        List<EpisodeDetail> result = null;
+        IntObjectMap<List<EpisodeDetail>> bySeason = this.seasonEpisodes.get(tvshowid);
+
+        if (bySeason != null && bySeason.get(season) != null) {
+            result = new ArrayList<EpisodeDetail>(bySeason.get(season));
+        }
+
+        return result;
+    }
+
+    /**
+     * Mark all songs of an album as indexed.
+     * @param albumid Id of the album
+     */
+    public synchronized void setAlbumComplete(int albumid) {
+        if (isValidId(albumid)) {
+            this.completeAlbums.add(albumid);
+            this.version++;
+        }
+    }
+
+    /**
+     * @param albumid Id of the album
+     * @return Songs of the album, null if not all songs are indexed
+     */
+    public synchronized List<SongDetail> getAlbumSongs(int albumid) {
+        List<SongDetail> result = null;
+
+        if (this.completeAlbums.contains(albumid)) {
+            int[] ids = this.albumSongs.get(albumid);
+            result = new ArrayList<SongDetail>(ids.length);
+
+            for (int id : ids) {
+                result.add(this.songs.get(id));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Drop an item from the index (item was updated or removed in xbmc).
+     * @param mediaType Type of the item ({@link MediaType} value)
+     * @param mediaId Id of the item
+     */
+    public synchronized void remove(String mediaType, int mediaId) {
+        if (MediaType.VIDEO_MOVIE.equals(mediaType)) {
+            this.movies.remove(mediaId);
+        } else if (MediaType.VIDEO_TVSHOW.equals(mediaType)) {
+            this.tvshows.remove(mediaId);
+            this.completeTvshows.remove(mediaId);
+            this.seasons.remove(mediaId);
+            this.seasonEpisodes.remove(mediaId);
+        } else if (MediaType.VIDEO_TVSHOW_EPISODE.equals(mediaType)) {
+            EpisodeDetail episode = this.episodes.remove(mediaId);
+
+            if (episode != null && isValidId(episode.tvshowid)) {
+                this.tvshowEpisodes.remove(episode.tvshowid, mediaId);
+                this.completeTvshows.remove(episode.tvshowid);
+                this.seasons.remove(episode.tvshowid);
+                this.seasonEpisodes.remove(episode.tvshowid);
+            } else {
+                // Tvshow of the episode is unknown.
+                this.seasonEpisodes.clear();
+            }
+        } else if (MediaType.AUDIO_SONG.equals(mediaType)) {
+            SongDetail song = this.songs.remove(mediaId);
+
+            if (song != null && isValidId(song.albumid)) {
+                this.albumSongs.remove(song.albumid, mediaId);
+                this.completeAlbums.remove(song.albumid);
+            }
+        } else if (MediaType.AUDIO_ALBUM.equals(mediaType)) {
+            this.albums.remove(mediaId);
+            this.completeAlbums.remove(mediaId);
+        }
+
+        this.version++;
+    }
+
+    /**
+     * Drop items of a type not found in xbmc anymore.
+     * @param mediaType Type of the items ({@link MediaType} value)
+     * @param ids Ids of items still in xbmc
+     * @return Number of dropped items
+     */
+    public synchronized int retain(String mediaType, IntHashSet ids) {
+        int[] keys;
+        int result = 0;
+
+        if (MediaType.VIDEO_MOVIE.equals(mediaType)) {
+            keys = this.movies.keys();
+        } else if (MediaType.VIDEO_TVSHOW.equals(mediaType)) {
+            keys = this.tvshows.keys();
+        } else if (MediaType.VIDEO_TVSHOW_EPISODE.equals(mediaType)) {
+            keys = this.episodes.keys();
+        } else if (MediaType.AUDIO_SONG.equals(mediaType)) {
+            keys = this.songs.keys();
+        } else if (MediaType.AUDIO_ALBUM.equals(mediaType)) {
+            keys = this.albums.keys();
+        } else {
+            keys = new int[0];
+        }
+
+        for (int key : keys) {
+            if (!ids.contains(key)) {
+                this.remove(mediaType, key);
+                result++;
+            }
+        }
+
+        this.externalIds.retain(mediaType, ids);
+
+        return result;
+    }
+
+    /**
+     * Episodes of the tvshow must be loaded again (an episode was added).
+     * @param tvshowid Id of the tvshow
+     */
+    public synchronized void setTvshowIncomplete(int tvshowid) {
+        this.seasons.remove(tvshowid);
+        this.seasonEpisodes.remove(tvshowid);
+
+        if (this.completeTvshows.remove(tvshowid)) {
+            this.version++;
+        }
+    }
+
+    /**
+     * Songs of the album must be loaded again (a song was added).
+     * @param albumid Id of the album
+     */
+    public synchronized void setAlbumIncomplete(int albumid) {
+        if (this.completeAlbums.remove(albumid)) {
+            this.version++;
+        }
+    }
+
+    public synchronized List<MovieDetail> getMovies() {
+        return this.movies.values();
+    }
+
+    public synchronized List<TVShowDetail> getTvshows() {
+        return this.tvshows.values();
+    }
+
+    public synchronized List<EpisodeDetail> getEpisodes() {
+        return this.episodes.values();
+    }
+
+    public synchronized List<SongDetail> getSongs() {
+        return this.songs.values();
+    }
+
+    public synchronized List<AlbumDetail> getAlbums() {
+        return this.albums.values();
+    }
+
+    /**
+     * @return Ids of tvshows for which all episodes are indexed
+     */
+    public synchronized int[] getCompleteTvshows() {
+        return this.completeTvshows.toArray();
+    }
+
+    /**
+     * @return Ids of albums for which all songs are indexed
+     */
+    public synchronized int[] getCompleteAlbums() {
+        return this.completeAlbums.toArray();
+    }
+
+    /**
+     * @return Counter incremented on each change of the index
+     */
+    public synchronized long getVersion() {
+        return this.version;
+    }
+
+    public synchronized void clear() {
+        this.movies.clear();
+        this.tvshows.clear();
+        this.episodes.clear();
+        this.songs.clear();
+        this.albums.clear();
+        this.tvshowEpisodes.clear();
+        this.albumSongs.clear();
+        this.completeTvshows.clear();
+        this.completeAlbums.clear();
+        this.seasons.clear();
+        this.seasonEpisodes.clear();
+        this.externalIds.clear();
+        this.version++;
+    }
+
+    /**
+     * @return Number of indexed items
+     */
+    public synchronized int size() {
+        return this.movies.size()
+                + this.tvshows.size()
+                + this.episodes.size()
+                + this.songs.size()
+                + this.albums.size();
+    }
+
+    private static boolean isValidId(Integer id) {
+        return id != null && id > 0;
+    }
+}
@@ -0,0 +1,445 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.JsonNodeFactory;
+import org.codehaus.jackson.node.ObjectNode;
+import org.xbmc.android.jsonrpc.api.AbstractModel;
+import org.xbmc.android.jsonrpc.api.model.AudioModel.AlbumDetail;
+import org.xbmc.android.jsonrpc.api.model.AudioModel.SongDetail;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.EpisodeDetail;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.MovieDetail;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.TVShowDetail;
+
+/**
+ * Persistent snapshot of {@link XbmcLibraryIndex}.
+ *
+ * Layout (big endian) :
+ * <pre>
+ * header   : magic, version, creation time
+ * strings  : count, then length + utf-8 bytes of each distinct string
+ * sections : movies, tvshows, episodes, songs, albums ; count, then items
+ * indexes  : complete tvshows, complete albums ; count, then ids
+ * </pre>
+ * Items are stored as a tree of tagged values, field names and string values
+ * are references to the string table, integers are zigzag varints. Items are
+ * decoded back through their json constructor, so any public field of the
+ * json-rpc models is kept. Episodes by tvshow and songs by album are rebuilt
+ * from the items.
+ *
+ * The file is read sequentially through a buffered stream, one item at a
+ * time.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public final class XbmcLibrarySnapshot {
+    private static final int MAGIC = 0x584c4253; // XLBS
+    private static final int VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("utf-8");
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_FALSE = 1;
+    private static final byte TAG_TRUE = 2;
+    private static final byte TAG_INT = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_STRING = 5;
+    private static final byte TAG_ARRAY = 6;
+    private static final byte TAG_OBJECT = 7;
+
+    /**
+     * Public instance fields of models, by class.
+     */
+    private static final Map<Class<?>, Field[]> FIELDS = new HashMap<Class<?>, Field[]>();
+
+    private XbmcLibrarySnapshot() { }
+
+    /**
+     * Write the index to file, replaced atomically.
+     * @param index {@link XbmcLibraryIndex} to save
+     * @param file Snapshot file
+     * @return Size of the snapshot in bytes
+     * @throws IOException on write error
+     */
+    public static long save(XbmcLibraryIndex index, File file) throws IOException {
+        Encoder encoder = new Encoder();
+
+        encoder.writeItems(index.getMovies());
+        encoder.writeItems(index.getTvshows());
+        encoder.writeItems(index.getEpisodes());
+        encoder.writeItems(index.getSongs());
+        encoder.writeItems(index.getAlbums());
+        encoder.writeIds(index.getCompleteTvshows());
+        encoder.writeIds(index.getCompleteAlbums());
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            directory.mkdirs();
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        OutputStream output = new FileOutputStream(temp);
+
+        try {
+            encoder.writeTo(output);
+        } finally {
+            output.close();
+        }
+
+        if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+            temp.delete();
+            throw new IOException("Unable to replace snapshot " + file);
+        }
+
+        return file.length();
+    }
+
+    /**
+     * Load a snapshot into the index.
+     * @param file Snapshot file
+     * @param index {@link XbmcLibraryIndex} to fill
+     * @return Number of loaded items, 0 if file does not exist
+     * @throws IOException on read error or invalid snapshot, index is left empty
+     */
+    public static int load(File file, XbmcLibraryIndex index) throws IOException {
+        if (!file.isFile()) {
+            return 0;
+        }
+
+        DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+
+        try {
+            return new Decoder(input).readInto(index);
+        } catch (EOFException e) {
+            index.clear();
+            throw new IOException("Truncated snapshot " + file, e);
+        } catch (RuntimeException e) {
+            index.clear();
+            throw new IOException("Invalid snapshot " + file, e);
+        } finally {
+            input.close();
+        }
+    }
+
+    private static Field[] getFields(Class<?> type) {
+        synchronized (FIELDS) {
+            Field[] result = FIELDS.get(type);
+
+            if (result == null) {
+                List<Field> fields = new ArrayList<Field>();
+
+                for (Field field : type.getFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        fields.add(field);
+                    }
+                }
+
+                result = fields.toArray(new Field[fields.size()]);
+                FIELDS.put(type, result);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Encode items, collecting the string table.
+     */
+    private static final class Encoder {
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+        private final List<String> table = new ArrayList<String>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(64 * 1024);
+
+        void writeItems(List<? extends AbstractModel> items) {
+            this.writeInt(items.size());
+
+            for (AbstractModel item : items) {
+                this.writeValue(item);
+            }
+        }
+
+        void writeIds(int[] ids) {
+            this.writeInt(ids.length);
+
+            for (int id : ids) {
+                this.writeInt(id);
+            }
+        }
+
+        void writeTo(OutputStream output) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putLong(System.currentTimeMillis());
+            output.write(header.array());
+
+            ByteArrayOutputStream stringTable = new ByteArrayOutputStream(this.table.size() * 16);
+            writeVarInt(stringTable, this.table.size());
+
+            for (String value : this.table) {
+                byte[] bytes = value.getBytes(UTF8);
+                writeVarInt(stringTable, bytes.length);
+                stringTable.write(bytes, 0, bytes.length);
+            }
+
+            stringTable.writeTo(output);
+            this.body.writeTo(output);
+        }
+
+        private void writeValue(Object value) {
+            if (value == null) {
+                this.body.write(TAG_NULL);
+            } else if (value instanceof Boolean) {
+                this.body.write((Boolean) value ? TAG_TRUE : TAG_FALSE);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                this.body.write(TAG_INT);
+                this.writeInt(((Number) value).intValue());
+            } else if (value instanceof Number) {
+                this.body.write(TAG_DOUBLE);
+                long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+                this.writeInt((int) (bits >>> 32));
+                this.writeInt((int) bits);
+            } else if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                this.body.write(TAG_ARRAY);
+                this.writeInt(list.size());
+
+                for (Object item : list) {
+                    this.writeValue(item);
+                }
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                this.body.write(TAG_OBJECT);
+                this.writeInt(map.size());
+
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    this.writeString(String.valueOf(entry.getKey()));
+                    this.writeValue(entry.getValue());
+                }
+            } else if (value instanceof AbstractModel) {
+                this.writeModel(value);
+            } else {
+                this.body.write(TAG_STRING);
+                this.writeString(value.toString());
+            }
+        }
+
+        private void writeModel(Object model) {
+            Field[] fields = getFields(model.getClass());
+            Object[] values = new Object[fields.length];
+            int count = 0;
+
+            for (int i = 0; i < fields.length; i++) {
+                try {
+                    values[i] = fields[i].get(model);
+                } catch (IllegalAccessException e) {
+                    values[i] = null;
+                }
+
+                if (values[i] != null) {
+                    count++;
+                }
+            }
+
+            this.body.write(TAG_OBJECT);
+            this.writeInt(count);
+
+            for (int i = 0; i < fields.length; i++) {
+                if (values[i] != null) {
+                    this.writeString(fields[i].getName());
+                    this.writeValue(values[i]);
+                }
+            }
+        }
+
+        private void writeString(String value) {
+            Integer reference = this.strings.get(value);
+
+            if (reference == null) {
+                reference = this.table.size();
+                this.strings.put(value, reference);
+                this.table.add(value);
+            }
+
+            writeVarInt(this.body, reference);
+        }
+
+        private void writeInt(int value) {
+            writeVarInt(this.body, (value << 1) ^ (value >> 31));
+        }
+
+        private static void writeVarInt(ByteArrayOutputStream output, int value) {
+            while ((value & ~0x7f) != 0) {
+                output.write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+
+            output.write(value);
+        }
+    }
+
+    /**
+     * Decode items from the file stream.
+     */
+    private static final class Decoder {
+        private final DataInputStream input;
+        private final JsonNodeFactory factory = JsonNodeFactory.instance;
+        private String[] strings;
+
+        Decoder(DataInputStream input) {
+            this.input = input;
+        }
+
+        int readInto(XbmcLibraryIndex index) throws IOException {
+            if (this.input.readInt() != MAGIC || this.input.readInt() != VERSION) {
+                throw new IOException("Unsupported snapshot format");
+            }
+
+            this.input.readLong(); // creation time
+            this.readStrings();
+
+            index.clear();
+            int result = 0;
+
+            for (int count = this.readInt(); count > 0; count--, result++) {
+                index.putMovie(new MovieDetail(this.readValue()));
+            }
+
+            for (int count = this.readInt(); count > 0; count--, result++) {
+                index.putTvshow(new TVShowDetail(this.readValue()));
+            }
+
+            for (int count = this.readInt(); count > 0; count--, result++) {
+                index.putEpisode(new EpisodeDetail(this.readValue()));
+            }
+
+            for (int count = this.readInt(); count > 0; count--, result++) {
+                index.putSong(new SongDetail(this.readValue()));
+            }
+
+            for (int count = this.readInt(); count > 0; count--, result++) {
+                index.putAlbum(new AlbumDetail(this.readValue()));
+            }
+
+            for (int count = this.readInt(); count > 0; count--) {
+                index.setTvshowComplete(this.readInt());
+            }
+
+            for (int count = this.readInt(); count > 0; count--) {
+                index.setAlbumComplete(this.readInt());
+            }
+
+            return result;
+        }
+
+        private void readStrings() throws IOException {
+            this.strings = new String[this.readVarInt()];
+
+            for (int i = 0; i < this.strings.length; i++) {
+                byte[] bytes = new byte[this.readVarInt()];
+                this.input.readFully(bytes);
+                this.strings[i] = new String(bytes, UTF8);
+            }
+        }
+
+        private JsonNode readValue() throws IOException {
+            JsonNode result;
+            byte tag = this.input.readByte();
+
+            switch (tag) {
+            case TAG_NULL:
+                result = this.factory.nullNode();
+                break;
+            case TAG_FALSE:
+                result = this.factory.booleanNode(false);
+                break;
+            case TAG_TRUE:
+                result = this.factory.booleanNode(true);
+                break;
+            case TAG_INT:
+                result = this.factory.numberNode(this.readInt());
+                break;
+            case TAG_DOUBLE:
+                long bits = ((long) this.readInt() << 32) | (this.readInt() & 0xffffffffL);
+                result = this.factory.numberNode(Double.longBitsToDouble(bits));
+                break;
+            case TAG_STRING:
+                result = this.factory.textNode(this.readString());
+                break;
+            case TAG_ARRAY:
+                ArrayNode array = this.factory.arrayNode();
+
+                for (int count = this.readInt(); count > 0; count--) {
+                    array.add(this.readValue());
+                }
+
+                result = array;
+                break;
+            case TAG_OBJECT:
+                ObjectNode object = this.factory.objectNode();
+
+                for (int count = this.readInt(); count > 0; count--) {
+                    String name = this.readString();
+                    object.put(name, this.readValue());
+                }
+
+                result = object;
+                break;
+            default:
+                throw new IllegalStateException("Unknown tag " + tag);
+            }
+
+            return result;
+        }
+
+        private String readString() throws IOException {
+            return this.strings[this.readVarInt()];
+        }
+
+        private int readInt() throws IOException {
+            int value = this.readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private int readVarInt() throws IOException {
+            int result = 0;
+            int shift = 0;
+            byte current;
+
+            do {
+                current = this.input.readByte();
+                result |= (current & 0x7f) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+
+            return result;
+        }
+    }
+}
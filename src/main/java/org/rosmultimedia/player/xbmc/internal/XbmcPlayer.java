@@ -8,24 +8,28 @@
  */
 package org.rosmultimedia.player.xbmc.internal;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.ros.message.Duration;
 import org.rosbuilding.common.media.IPlayer;
 import org.rosmultimedia.player.xbmc.XbmcNode;
 import org.rosmultimedia.player.xbmc.jsonrpc.XbmcJson;
+import org.xbmc.android.jsonrpc.api.AbstractCall;
 import org.xbmc.android.jsonrpc.api.call.GUI;
 import org.xbmc.android.jsonrpc.api.call.Input;
 import org.xbmc.android.jsonrpc.api.call.Player;
-import org.xbmc.android.jsonrpc.api.call.Player.GetActivePlayers.GetActivePlayersResult;
 import org.xbmc.android.jsonrpc.api.call.Playlist;
 import org.xbmc.android.jsonrpc.api.model.GUIModel;
+import org.xbmc.android.jsonrpc.api.model.GlobalModel;
 import org.xbmc.android.jsonrpc.api.model.GlobalModel.Toggle;
 import org.xbmc.android.jsonrpc.api.model.ListModel;
 import org.xbmc.android.jsonrpc.api.model.PlayerModel;
 import org.xbmc.android.jsonrpc.api.model.PlayerModel.PositionTime;
 import org.xbmc.android.jsonrpc.api.model.PlaylistModel;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Strings;
 
 import smarthome_media_msgs.MediaAction;
@@ -43,10 +47,38 @@ public class XbmcPlayer implements IPlayer {
     private static final String XBMC_PLUGIN_YOUTUBE_URL =
             "plugin://plugin.video.youtube/?action=play_video&videoid=%s";
 
+    /**
+     * Player properties changing while an item is played, polled.
+     */
+    private static final String[] PLAYER_VOLATILE_PROPERTIES = {
+        "speed",
+        "percentage",
+        "time",
+        "currentaudiostream",
+        "subtitleenabled"
+    };
+
+    /**
+     * Player properties of an item, loaded on item change.
+     */
+    private static final String[] PLAYER_STATIC_PROPERTIES = {
+        "audiostreams",
+        "canseek",
+        "totaltime"
+    };
+
+    /**
+     * Properties of an item, loaded on item change.
+     */
+    private static final String[] ITEM_STATIC_PROPERTIES = {
+        "file",
+        "title",
+        "thumbnail"
+    };
+
     /**
      * Xbmc node.
      */
-    @SuppressWarnings("unused")
     private XbmcNode xbmcNode;
 
     /**
@@ -54,6 +86,42 @@ public class XbmcPlayer implements IPlayer {
      */
     private XbmcJson xbmcJson;
 
+    /**
+     * Type of the last played item.
+     */
+    private String lastMediaType = "";
+
+    /**
+     * Id of the last played item.
+     */
+    private int lastMediaId = -1;
+
+    /**
+     * Thumbnail of the last played item, prefetched by artwork proxy.
+     */
+    private String lastThumbnail;
+
+    /**
+     * Player, type, id and label of the item of static properties.
+     */
+    private int itemPlayerid;
+    private String itemType;
+    private int itemId;
+    private String itemLabel;
+    private PlayerModel.PropertyValue staticPlayerProperty;
+    private ListModel.AllItems staticItemProperty;
+    private String thumbnailUrl;
+
+    /**
+     * Calls of the poll, sent again on each update.
+     */
+    private final Player.GetActivePlayers activePlayersCall = new Player.GetActivePlayers();
+    private final GUI.GetProperties pollGuiCall = new GUI.GetProperties("currentwindow", "currentcontrol");
+    private Player.GetProperties pollPlayerCall;
+    private Player.GetItem pollItemCall;
+    private List<AbstractCall<?>> pollCalls;
+    private int pollPlayerid;
+
     /**
      * XbmcPlayer constructor.
      * @param xbmcJson {@link XbmcJson} xbmc json-rpc
@@ -70,165 +138,264 @@ public class XbmcPlayer implements IPlayer {
     }
 
     public void load(PlayerInfo playerInfo) {
-        this.resetInfo(playerInfo);
+        XbmcActivePlayers activePlayers = this.xbmcNode.getActivePlayers();
+
+        // Without notifications, active players may change at any time.
+        if (!this.xbmcNode.isNotified()) {
+            activePlayers.invalidate();
+        }
 
-        List<GetActivePlayersResult> players = this.xbmcJson
-                .getResults(new Player.GetActivePlayers());
+        if (activePlayers.needsReconcile()) {
+            long version = activePlayers.getVersion();
+            activePlayers.reconcile(this.xbmcJson.getResults(this.activePlayersCall), version);
+        }
+
+        int playerid = activePlayers.getPlayerid();
 
-        if (players != null && !players.isEmpty()) {
-            GetActivePlayersResult player = players.get(0);
-            this.updateInfo(playerInfo, player.playerid);
+        if (playerid != XbmcActivePlayers.NONE) {
+            this.updateInfo(playerInfo, playerid);
+        } else {
+            this.resetStaticInfo();
+            this.resetInfo(playerInfo);
         }
+
+        this.checkItemChanged(playerInfo);
+    }
+
+    /**
+     * @return Id of the player of commands
+     */
+    private int getPlayerid() {
+        return this.xbmcNode.getActivePlayers().getCommandPlayerid();
     }
 
     @Override
     public void callbackCmdAction(MediaAction message, StateData stateData) {
+        List<AbstractCall<?>> calls = this.toCalls(message, stateData);
+
+        if (calls != null) {
+            this.send(message.getMethod(), calls);
+        } else {
+            this.callbackPvrAction(message, stateData);
+        }
+    }
+
+    /**
+     * Run a pvr action (channel open, channel up/down), without json-rpc
+     * translation.
+     * @param message Action
+     * @param stateData State of the player when the action is sent
+     * @return true if a channel was opened
+     */
+    boolean callbackPvrAction(MediaAction message, StateData stateData) {
+        boolean result = false;
+
+        switch (message.getMethod()) {
+        case XbmcPvr.OP_CHANNEL_UP:
+            result = this.xbmcNode.getPvr().zap(stateData.getPlayer(), 1);
+            break;
+
+        case XbmcPvr.OP_CHANNEL_DOWN:
+            result = this.xbmcNode.getPvr().zap(stateData.getPlayer(), -1);
+            break;
+
+        case OP_OPEN:
+            result = this.xbmcNode.getPvr().open(Integer.parseInt(
+                    message.getUri().replace(XbmcPvr.URI_CHANNEL, "")));
+            break;
+        }
+
+        return result;
+    }
+
+    /**
+     * Send calls of an action : playlist edits through the playlist mirror,
+     * keys through the input queue, other calls directly.
+     * @param method Method of the action
+     * @param calls Calls of the action
+     */
+    private void send(String method, List<AbstractCall<?>> calls) {
+        boolean directional = OP_UP.equals(method) || OP_DOWN.equals(method)
+                || OP_LEFT.equals(method) || OP_RIGHT.equals(method);
+
+        if (!calls.isEmpty() && calls.get(0).getName().startsWith("Playlist.")) {
+            // Edits of an action are sent in a single batch.
+            this.xbmcNode.getPlaylist().execute(calls);
+            return;
+        }
+
+        for (AbstractCall<?> call : calls) {
+            if (directional || call.getName().startsWith("Input.")) {
+                this.xbmcNode.getInput().send(call, directional);
+            } else {
+                this.xbmcJson.getResult(call);
+            }
+        }
+    }
+
+    /**
+     * Translate an action to json-rpc calls, without sending them.
+     * @param message Action
+     * @param stateData State of the player when the action is sent
+     * @return Calls of the action, in order, empty if the action does nothing
+     * in this state, null if the action has no calls (pvr, unknown method)
+     */
+    List<AbstractCall<?>> toCalls(MediaAction message, StateData stateData) {
+        List<AbstractCall<?>> result = new ArrayList<AbstractCall<?>>();
+        boolean canseek = stateData.getPlayer().getCanseek();
+        int playerid = this.getPlayerid();
+
         switch (message.getMethod()) {
         case OP_PAUSE:
-            this.xbmcJson.getResult(new Player.PlayPause(1, new Toggle(false)));
+            result.add(new Player.PlayPause(playerid, new Toggle(false)));
             break;
 
         case OP_PLAY:
-            this.xbmcJson.getResult(new Player.PlayPause(1, new Toggle(true)));
+            result.add(new Player.PlayPause(playerid, new Toggle(true)));
             break;
 
         case OP_PLAYPAUSE:
-            this.xbmcJson.getResult(new Player.PlayPause(1));
+            result.add(new Player.PlayPause(playerid));
             break;
 
         case OP_STOP:
-            this.xbmcJson.getResult(new Player.Stop(1));
+            result.add(new Player.Stop(playerid));
             break;
 
         case OP_SPEED:
-            if (stateData.getPlayer().getCanseek()) {
-                int speed = Integer.parseInt(message.getData().get(0));
-                this.xbmcJson.getResult(new Player.SetSpeed(1, speed));
+            if (canseek) {
+                result.add(new Player.SetSpeed(playerid,
+                        Integer.parseInt(message.getData().get(0))));
             }
             break;
 
         case OP_SPEED_UP:
-            if (stateData.getPlayer().getCanseek()) {
-                int speed = 2;
-                this.xbmcJson.getResult(new Player.SetSpeed(1, speed));
+            if (canseek) {
+                result.add(new Player.SetSpeed(playerid, 2));
             }
             break;
 
         case OP_SPEED_DOWN:
-            if (stateData.getPlayer().getCanseek()) {
-                int speed = -2;
-                this.xbmcJson.getResult(new Player.SetSpeed(1, speed));
+            if (canseek) {
+                result.add(new Player.SetSpeed(playerid, -2));
             }
             break;
 
         case OP_OPEN:
-            this.xbmcJson.getResult(new Player.Open(this.makeItem(message)));
+            if (message.getUri() != null && message.getUri().startsWith(XbmcPvr.URI_CHANNEL)) {
+                result = null;
+            } else {
+                result.add(new Player.Open(this.makeItem(message)));
+            }
             break;
 
         case OP_SEEK:
-            if (stateData.getPlayer().getCanseek()) {
-                this.xbmcJson.getResult(new Player.Seek(1, this
-                        .getPositionTime(message)));
+            if (canseek) {
+                result.add(new Player.Seek(playerid, this.getPositionTime(message)));
             }
             break;
 
         case OP_NEXT:
-            if (stateData.getPlayer().getCanseek()) {
-                this.xbmcJson.getResult(new Player.GoTo(1, Player.GoTo.To.NEXT));
+            if (canseek) {
+                result.add(new Player.GoTo(playerid, Player.GoTo.To.NEXT));
             }
             break;
 
         case OP_PREVIOUS:
-            if (stateData.getPlayer().getCanseek()) {
-                this.xbmcJson.getResult(new Player.GoTo(1, Player.GoTo.To.PREVIOUS));
+            if (canseek) {
+                result.add(new Player.GoTo(playerid, Player.GoTo.To.PREVIOUS));
             }
             break;
 
         case OP_ADD_PLAYLIST:
-            // this.xbmcJson.getResult(new Playlist.Add(1, new
-            // PlaylistModel.Item()));
+            result.addAll(XbmcPlaylist.newAddCalls(
+                    getPlaylistId(message), this.makeItems(message, 0)));
             break;
 
         case OP_INS_PLAYLIST:
-            // this.xbmcJson.getResult(new Playlist.Insert(1, 10, new
-            // PlaylistModel.Item()));
+            result.addAll(XbmcPlaylist.newInsertCalls(
+                    getPlaylistId(message),
+                    Integer.parseInt(message.getData().get(0)),
+                    this.makeItems(message, 1)));
             break;
 
         case OP_REM_PLAYLIST:
-            // this.xbmcJson.getResult(new Playlist.Add(1, new
-            // PlaylistModel.Item()));
+            int[] positions = new int[message.getData().size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = Integer.parseInt(message.getData().get(i));
+            }
+
+            result.addAll(XbmcPlaylist.newRemoveCalls(getPlaylistId(message), positions));
+            break;
+
+        case XbmcPlaylist.OP_SWAP_PLAYLIST:
+            result.add(new Playlist.Swap(getPlaylistId(message),
+                    Integer.parseInt(message.getData().get(0)),
+                    Integer.parseInt(message.getData().get(1))));
             break;
 
         case OP_CLR_PLAYLIST:
-            this.xbmcJson.getResult(new Playlist.Clear(1));
+            result.add(new Playlist.Clear(getPlaylistId(message)));
             break;
 
         case OP_BACK:
-            this.xbmcJson.getResult(new Input.Back());
+            result.add(new Input.Back());
             break;
 
         case OP_HOME:
-            this.xbmcJson.getResult(new Input.Home());
+            result.add(new Input.Home());
             break;
 
         case OP_INFO:
-            this.xbmcJson.getResult(new Input.Info());
+            result.add(new Input.Info());
             break;
 
         case OP_DISPLAY:
-            this.xbmcJson.getResult(new Input.ShowOSD());
+            result.add(new Input.ShowOSD());
             break;
 
         case OP_SELECT:
-            if (stateData.getPlayer().getCanseek()) {
-                message.setMethod(OP_PLAYPAUSE);
-                this.callbackCmdAction(message, stateData);
-            } else {
-                this.xbmcJson.getResult(new Input.Select());
-            }
+            result.add(canseek ? new Player.PlayPause(playerid) : new Input.Select());
             break;
 
         case OP_CONTEXT:
-            this.xbmcJson.getResult(new Input.ContextMenu());
+            result.add(new Input.ContextMenu());
             break;
 
         case OP_UP:
-            if (stateData.getPlayer().getCanseek()) {
-                this.xbmcJson.getResult(new Player.Seek(1, Player.Seek.Value.BIGFORWARD));
-            } else {
-                this.xbmcJson.getResult(new Input.Up());
-            }
+            result.add(canseek
+                    ? new Player.Seek(playerid, Player.Seek.Value.BIGFORWARD)
+                    : new Input.Up());
             break;
 
         case OP_DOWN:
-            if (stateData.getPlayer().getCanseek()) {
-                this.xbmcJson.getResult(new Player.Seek(1, Player.Seek.Value.BIGBACKWARD));
-            } else {
-                this.xbmcJson.getResult(new Input.Down());
-            }
+            result.add(canseek
+                    ? new Player.Seek(playerid, Player.Seek.Value.BIGBACKWARD)
+                    : new Input.Down());
             break;
 
         case OP_LEFT:
-            if (stateData.getPlayer().getCanseek()) {
-                this.xbmcJson.getResult(new Player.Seek(1, Player.Seek.Value.SMALLBACKWARD));
-            } else {
-                this.xbmcJson.getResult(new Input.Left());
-            }
+            result.add(canseek
+                    ? new Player.Seek(playerid, Player.Seek.Value.SMALLBACKWARD)
+                    : new Input.Left());
             break;
 
         case OP_RIGHT:
-            if (stateData.getPlayer().getCanseek()) {
-                this.xbmcJson.getResult(new Player.Seek(1, Player.Seek.Value.SMALLFORWARD));
-            } else {
-                this.xbmcJson.getResult(new Input.Right());
-            }
+            result.add(canseek
+                    ? new Player.Seek(playerid, Player.Seek.Value.SMALLFORWARD)
+                    : new Input.Right());
             break;
 
         case OP_TXT:
-            this.xbmcJson
-            .getResult(new Input.SendText(message.getData().get(0)));
+            result.add(new Input.SendText(message.getData().get(0)));
+            break;
+
+        default:
+            result = null;
             break;
         }
+
+        return result;
     }
 
     /**
@@ -237,75 +404,74 @@ public class XbmcPlayer implements IPlayer {
      */
     private void resetInfo(PlayerInfo playerInfo) {
         playerInfo.setCanseek(false);
-        playerInfo.setMediaid(-1);
-        playerInfo.getMediatype().setValue("");
-        playerInfo.setStamp(new Duration(0, 0));
-        playerInfo.setTotaltime(new Duration(0, 0));
         playerInfo.setSpeed(0);
         playerInfo.setSubtitleenabled(false);
+        setDuration(playerInfo.getStamp(), null);
+        resetItemInfo(playerInfo);
+    }
+
+    /**
+     * Reset info of the item from {@link PlayerInfo}.
+     * @param playerInfo {@link PlayerInfo} to update
+     */
+    private static void resetItemInfo(PlayerInfo playerInfo) {
+        playerInfo.setMediaid(-1);
+        playerInfo.getMediatype().setValue("");
+        setDuration(playerInfo.getTotaltime(), null);
         playerInfo.setFile("");
         playerInfo.setTitle("");
         playerInfo.setThumbnail("");
     }
 
     /**
-     * Update PlayerInfo from xbmc.
+     * Update PlayerInfo from xbmc. Volatile properties are requested on each
+     * update, with the id of the item, in a single batch. Static properties
+     * of the item are requested again only when the item changes.
+     *
+     * Calls of the batch are kept and sent again while the player is the
+     * same, and fields of {@link PlayerInfo} are updated in place.
      * @param playerInfo {@link PlayerInfo} to update
      * @param playerid Id of active player
      */
     private void updateInfo(PlayerInfo playerInfo, int playerid) {
-        PlayerModel.PropertyValue playerProperty = this.xbmcJson
-                .getResult(new Player.GetProperties(playerid,
-                        // "canrepeat",
-                        // "canmove",
-                        // "canshuffle",
-                        "speed",
-                        "percentage",
-                        "audiostreams",
-                        // "position",
-                        // "repeat",
-                        // "currentsubtitle",
-                        // "canrotate",
-                        // "canzoom",
-                        // "canchangespeed",
-                        // "partymode",
-                        // "subtitles",
-                        "canseek",
-                        "time",
-                        "totaltime",
-                        // "shuffled",
-                        "currentaudiostream",
-                        // "live",
-                        "subtitleenabled"));
-
-        GUIModel.PropertyValue guiProperty = this.xbmcJson
-                .getResult(new GUI.GetProperties(
-                        "currentwindow",
-                        "currentcontrol"));
-
-        ListModel.AllItems itemProperty = this.xbmcJson
-                .getResult(new Player.GetItem(playerid,
-                        "file",
-                        "title",
-                        "thumbnail"));
+        if (this.pollCalls == null || this.pollPlayerid != playerid) {
+            this.pollPlayerCall = new Player.GetProperties(playerid, PLAYER_VOLATILE_PROPERTIES);
+            // Id, type and label only, to detect a change of item.
+            this.pollItemCall = new Player.GetItem(playerid);
+            this.pollCalls = Arrays.<AbstractCall<?>>asList(
+                    this.pollPlayerCall, this.pollGuiCall, this.pollItemCall);
+            this.pollPlayerid = playerid;
+        }
+
+        this.xbmcJson.executeBatch(this.pollCalls);
+
+        PlayerModel.PropertyValue playerProperty = this.pollPlayerCall.getResult();
+        GUIModel.PropertyValue guiProperty = this.pollGuiCall.getResult();
+        ListModel.AllItems itemId = this.pollItemCall.getResult();
+
+        if (itemId == null) {
+            // Player not found, a notification may have been missed.
+            this.xbmcNode.getActivePlayers().invalidate();
+        } else if (!this.isCurrentItem(playerid, itemId)) {
+            this.loadStaticInfo(playerid, itemId);
+        }
 
         playerInfo.setCanseek(true);
 
         if (playerProperty != null) {
-            playerInfo.setStamp(new Duration(playerProperty.time.hours
-                    * 60 * 60 + playerProperty.time.minutes * 60
-                    + playerProperty.time.seconds,
-                    playerProperty.time.milliseconds * 100));
-
-            playerInfo.setTotaltime(new Duration(
-                    playerProperty.totaltime.hours * 60 * 60
-                    + playerProperty.totaltime.minutes * 60
-                    + playerProperty.totaltime.seconds,
-                    playerProperty.totaltime.milliseconds * 100));
-
-            playerInfo.setSpeed(playerProperty.speed);
-            playerInfo.setCanseek(playerProperty.canseek);
-            playerInfo.setSubtitleenabled(playerProperty.subtitleenabled);
+            setDuration(playerInfo.getStamp(), playerProperty.time);
+
+            if (playerProperty.speed != null) {
+                playerInfo.setSpeed(playerProperty.speed);
+            }
+
+            if (playerProperty.subtitleenabled != null) {
+                playerInfo.setSubtitleenabled(playerProperty.subtitleenabled);
+            }
+        }
+
+        if (this.staticPlayerProperty != null && this.staticPlayerProperty.canseek != null) {
+            playerInfo.setCanseek(this.staticPlayerProperty.canseek);
         }
 
         if (guiProperty != null) {
@@ -315,17 +481,113 @@ public class XbmcPlayer implements IPlayer {
                     || guiProperty.currentwindow.id == 12006); //audio visualization
         }
 
-        if (itemProperty != null) {
-            playerInfo.setMediaid(0);
-            playerInfo.getMediatype().setValue(itemProperty.type);
+        ListModel.AllItems itemProperty = this.staticItemProperty;
 
-            if (!playerInfo.getMediatype().getValue().equals(MediaType.UNKNOW)) {
-                playerInfo.setMediaid(itemProperty.id);
-            }
+        if (itemId != null && itemProperty != null) {
+            playerInfo.getMediatype().setValue(this.itemType);
+            playerInfo.setMediaid(MediaType.UNKNOW.equals(this.itemType) ? 0 : this.itemId);
 
+            setDuration(playerInfo.getTotaltime(), this.staticPlayerProperty == null
+                    ? null
+                    : this.staticPlayerProperty.totaltime);
             playerInfo.setFile(itemProperty.file);
             playerInfo.setTitle(itemProperty.title);
-            playerInfo.setThumbnail(XbmcUtils.getImageUrl(itemProperty.thumbnail));
+            playerInfo.setThumbnail(this.thumbnailUrl);
+        } else {
+            resetItemInfo(playerInfo);
+        }
+    }
+
+    /**
+     * @param playerid Id of active player
+     * @param item Item of active player (id, type and label)
+     * @return true if static properties are of this item
+     */
+    private boolean isCurrentItem(int playerid, ListModel.AllItems item) {
+        return this.staticItemProperty != null
+                && this.itemPlayerid == playerid
+                && Objects.equal(this.itemType, item.type)
+                && this.itemId == (item.id == null ? 0 : item.id)
+                && Objects.equal(this.itemLabel, item.label);
+    }
+
+    /**
+     * Load static properties of the playing item (file, title, total time...).
+     * @param playerid Id of active player
+     * @param item Item of active player (id, type and label)
+     */
+    private void loadStaticInfo(int playerid, ListModel.AllItems item) {
+        Player.GetProperties playerCall = new Player.GetProperties(playerid, PLAYER_STATIC_PROPERTIES);
+        Player.GetItem itemCall = new Player.GetItem(playerid, ITEM_STATIC_PROPERTIES);
+
+        this.xbmcJson.executeBatch(Arrays.<AbstractCall<?>>asList(playerCall, itemCall));
+
+        this.staticPlayerProperty = playerCall.getResult();
+        this.staticItemProperty = itemCall.getResult();
+        this.itemPlayerid = playerid;
+        this.itemType = Strings.nullToEmpty(item.type);
+        this.itemId = item.id == null ? 0 : item.id;
+        this.itemLabel = item.label;
+        this.thumbnailUrl = "";
+
+        ListModel.AllItems itemProperty = this.staticItemProperty;
+
+        if (itemProperty != null) {
+            this.thumbnailUrl = this.xbmcNode.getArtwork().getImageUrl(itemProperty.thumbnail);
+
+            if (!Strings.isNullOrEmpty(itemProperty.thumbnail)
+                    && !itemProperty.thumbnail.equals(this.lastThumbnail)) {
+                this.lastThumbnail = itemProperty.thumbnail;
+                this.xbmcNode.getArtwork().prefetch(itemProperty.thumbnail);
+            }
+        }
+    }
+
+    /**
+     * Drop static properties, loaded again on next update (session changed).
+     */
+    public void resetStaticInfo() {
+        this.staticPlayerProperty = null;
+        this.staticItemProperty = null;
+    }
+
+    /**
+     * Set a {@link Duration} in place.
+     * @param duration Duration to update
+     * @param time Time from xbmc, null for 0
+     */
+    private static void setDuration(Duration duration, GlobalModel.Time time) {
+        if (time == null) {
+            duration.secs = 0;
+            duration.nsecs = 0;
+        } else {
+            duration.secs = time.hours * 60 * 60 + time.minutes * 60 + time.seconds;
+            duration.nsecs = time.milliseconds * 100;
+        }
+    }
+
+    /**
+     * Drop the last played item from library cache when playback changes,
+     * its playcount and resume point are updated by xbmc, and prefetch the
+     * new played item.
+     * @param playerInfo {@link PlayerInfo} updated
+     */
+    private void checkItemChanged(PlayerInfo playerInfo) {
+        String mediaType = playerInfo.getMediatype().getValue();
+        int mediaId = playerInfo.getMediaid();
+
+        if (mediaId != this.lastMediaId || !mediaType.equals(this.lastMediaType)) {
+            if (this.lastMediaId > 0 && this.xbmcNode.getLibrary() != null) {
+                this.xbmcNode.getLibrary().invalidate(this.lastMediaType, this.lastMediaId);
+            }
+
+            this.lastMediaType = mediaType;
+            this.lastMediaId = mediaId;
+
+            // Clients ask for detail of the new item as soon as it plays.
+            if (mediaId > 0 && this.xbmcNode.getLibrary() != null) {
+                this.xbmcNode.getLibrary().prefetchItem(mediaType, mediaId);
+            }
         }
     }
 
@@ -335,30 +597,141 @@ public class XbmcPlayer implements IPlayer {
      * @return
      */
     private PlaylistModel.Item makeItem(MediaAction msg) {
+        return this.makeItem(msg.getUri(), msg.getType());
+    }
+
+    /**
+     * Convert uri of a media to {@link PlaylistModel.Item}.
+     * @param uri Uri of the media
+     * @param type Type of the media
+     * @return Item, null if not supported
+     */
+    private PlaylistModel.Item makeItem(String uri, String type) {
         PlaylistModel.Item item = null;
-        String uri = msg.getUri();
 
         if (!Strings.isNullOrEmpty(uri)) {
             if (uri.startsWith(IPlayer.URI_MEDIA_IMDB)) {
-                //Get mediaid from database with imdbid
-
+                String externalId = uri.replace(IPlayer.URI_MEDIA_IMDB, "");
+                String mediaType = this.getExternalType(externalId, type);
+                int mediaId = this.getExternalId(externalId, mediaType);
+
+                if (mediaId > 0) {
+                    item = this.makeItem(IPlayer.URI_MEDIA + mediaId, mediaType);
+                } else {
+                    this.xbmcNode.logI(String.format("Unknown external id %s", externalId));
+                }
             } else if (uri.startsWith(IPlayer.URI_MEDIA_YOUTUBE)) {
                 item = new PlaylistModel.Item(
                         new PlaylistModel.Item.File(String.format(
                                 XBMC_PLUGIN_YOUTUBE_URL,
                                 uri.replace(IPlayer.URI_MEDIA_YOUTUBE, ""))));
-            } else if (msg.getType().equals(MediaType.VIDEO_MOVIE)) {
+            } else if (type.equals(MediaType.VIDEO_MOVIE)) {
                 item = new PlaylistModel.Item(new PlaylistModel.Item.Movieid(
                         Integer.parseInt(uri.replace(IPlayer.URI_MEDIA, ""))));
-            } else if (msg.getType().equals(MediaType.VIDEO_TVSHOW_EPISODE)) {
+            } else if (type.equals(MediaType.VIDEO_TVSHOW_EPISODE)) {
                 item = new PlaylistModel.Item(new PlaylistModel.Item.Episodeid(
                         Integer.parseInt(uri.replace(IPlayer.URI_MEDIA, ""))));
+            } else if (type.equals(MediaType.AUDIO_SONG)) {
+                item = new PlaylistModel.Item(new PlaylistModel.Item.Songid(
+                        Integer.parseInt(uri.replace(IPlayer.URI_MEDIA, ""))));
+            } else if (type.equals(MediaType.AUDIO_ALBUM)) {
+                item = new PlaylistModel.Item(new PlaylistModel.Item.Albumid(
+                        Integer.parseInt(uri.replace(IPlayer.URI_MEDIA, ""))));
             }
         }
 
         return item;
     }
 
+    /**
+     * Convert {@link MediaAction} message to playlist items : the uri, then
+     * uris of the data from a start index, all of the message type. A tvshow
+     * is expanded to its episodes.
+     * @param msg Message to convert
+     * @param start Index of the first uri in data
+     * @return Items, in order
+     */
+    private List<PlaylistModel.Item> makeItems(MediaAction msg, int start) {
+        List<String> uris = new ArrayList<String>();
+        List<PlaylistModel.Item> result = new ArrayList<PlaylistModel.Item>();
+
+        if (!Strings.isNullOrEmpty(msg.getUri())) {
+            uris.add(msg.getUri());
+        }
+
+        if (msg.getData() != null) {
+            for (int i = start; i < msg.getData().size(); i++) {
+                uris.add(msg.getData().get(i));
+            }
+        }
+
+        for (String uri : uris) {
+            if (MediaType.VIDEO_TVSHOW.equals(msg.getType()) && uri.startsWith(IPlayer.URI_MEDIA)) {
+                result.addAll(this.xbmcNode.getPlaylist().getEpisodeItems(
+                        Integer.parseInt(uri.replace(IPlayer.URI_MEDIA, ""))));
+            } else if (MediaType.VIDEO_TVSHOW.equals(msg.getType())
+                    && uri.startsWith(IPlayer.URI_MEDIA_IMDB)) {
+                int tvshowid = this.getExternalId(
+                        uri.replace(IPlayer.URI_MEDIA_IMDB, ""), MediaType.VIDEO_TVSHOW);
+
+                if (tvshowid > 0) {
+                    result.addAll(this.xbmcNode.getPlaylist().getEpisodeItems(tvshowid));
+                }
+            } else {
+                PlaylistModel.Item item = this.makeItem(uri, msg.getType());
+
+                if (item != null) {
+                    result.add(item);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param externalId External id of the media (imdb number, MusicBrainz id...)
+     * @param type Type of the media, from message
+     * @return Type of the media, from library when the message type is not
+     *         a library type
+     */
+    private String getExternalType(String externalId, String type) {
+        String result = type;
+
+        if (this.getExternalId(externalId, type) <= 0 && this.xbmcNode.getLibrary() != null) {
+            String indexed = this.xbmcNode.getLibrary().getIndex().getExternalType(externalId);
+            result = indexed == null ? type : indexed;
+        }
+
+        return result;
+    }
+
+    /**
+     * @param externalId External id of the media (imdb number, MusicBrainz id...)
+     * @param type Type of the media
+     * @return Xbmc id of the media, 0 if unknown
+     */
+    private int getExternalId(String externalId, String type) {
+        int result = 0;
+
+        if (this.xbmcNode.getLibrary() != null) {
+            result = this.xbmcNode.getLibrary().getIndex().getExternalId(type, externalId);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param msg {@link MediaAction} message
+     * @return Audio playlist for music, video playlist otherwise
+     */
+    private static int getPlaylistId(MediaAction msg) {
+        return MediaType.AUDIO_SONG.equals(msg.getType())
+                || MediaType.AUDIO_ALBUM.equals(msg.getType())
+                ? XbmcPlaylist.PLAYLIST_AUDIO
+                : XbmcPlaylist.PLAYLIST_VIDEO;
+    }
+
     /**
      * Convert {@link MediaAction} data to {@link PositionTime}.
      * @param msg Data to convert
@@ -0,0 +1,338 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+import org.rosmultimedia.player.xbmc.IXbmcNode;
+import org.rosmultimedia.player.xbmc.internal.collection.IntObjectMap;
+import org.rosmultimedia.player.xbmc.jsonrpc.XbmcJson;
+import org.xbmc.android.jsonrpc.api.AbstractCall;
+import org.xbmc.android.jsonrpc.api.call.Playlist;
+import org.xbmc.android.jsonrpc.api.call.VideoLibrary;
+import org.xbmc.android.jsonrpc.api.model.ListModel;
+import org.xbmc.android.jsonrpc.api.model.ListModel.AllItems;
+import org.xbmc.android.jsonrpc.api.model.PlaylistModel;
+import org.xbmc.android.jsonrpc.api.model.VideoModel.EpisodeDetail;
+
+/**
+ * Xbmc playlist editing.
+ *
+ * Several items are added or removed with a single json-rpc batch. A local
+ * mirror of each playlist is updated from the sent edits, so that reading
+ * the playlist does not need a Playlist.GetItems after each edit. The mirror
+ * is dropped, and loaded again on next read, when an edit fails or adds items
+ * of unknown size (album, directory...).
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcPlaylist {
+    public static final String OP_SWAP_PLAYLIST = "op_swap_playlist";
+
+    public static final int PLAYLIST_AUDIO = 0;
+    public static final int PLAYLIST_VIDEO = 1;
+
+    /**
+     * Mirror is loaded again after this delay, to see edits of other clients.
+     */
+    private static final long MIRROR_TTL = 30000;
+
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    private static final String[] ITEM_PROPERTIES = { "file" };
+
+    /**
+     * Calls editing a playlist.
+     */
+    private static final List<String> EDITS = Arrays.asList(
+            Playlist.Add.API_TYPE,
+            Playlist.Insert.API_TYPE,
+            Playlist.Remove.API_TYPE,
+            Playlist.Swap.API_TYPE,
+            Playlist.Clear.API_TYPE);
+
+    /**
+     * Mirrored playlist.
+     */
+    private static final class Mirror {
+        private final List<AllItems> items;
+        private final long time;
+
+        private Mirror(List<AllItems> items, long time) {
+            this.items = items;
+            this.time = time;
+        }
+    }
+
+    /**
+     * Xbmc node.
+     */
+    private final IXbmcNode xbmcNode;
+
+    /**
+     * Xbmc json-rpc.
+     */
+    private final XbmcJson xbmcJson;
+
+    /**
+     * Mirrors by playlist id.
+     */
+    private final IntObjectMap<Mirror> mirrors = new IntObjectMap<Mirror>();
+
+    /**
+     * XbmcPlaylist constructor.
+     * @param xbmcJson {@link XbmcJson} xbmc json-rpc
+     * @param node {@link IXbmcNode} xbmc node
+     */
+    public XbmcPlaylist(XbmcJson xbmcJson, IXbmcNode node) {
+        this.xbmcJson = xbmcJson;
+        this.xbmcNode = node;
+    }
+
+    /**
+     * @param playlistid Id of the playlist
+     * @param items Items to add
+     * @return Calls adding items at the end of a playlist
+     */
+    public static List<AbstractCall<?>> newAddCalls(int playlistid, List<PlaylistModel.Item> items) {
+        List<AbstractCall<?>> result = new ArrayList<AbstractCall<?>>(items.size());
+
+        for (PlaylistModel.Item item : items) {
+            result.add(new Playlist.Add(playlistid, item));
+        }
+
+        return result;
+    }
+
+    /**
+     * @param playlistid Id of the playlist
+     * @param position Position of the first item
+     * @param items Items to insert, in order
+     * @return Calls inserting items in a playlist
+     */
+    public static List<AbstractCall<?>> newInsertCalls(int playlistid, int position,
+            List<PlaylistModel.Item> items) {
+        List<AbstractCall<?>> result = new ArrayList<AbstractCall<?>>(items.size());
+
+        for (int i = 0; i < items.size(); i++) {
+            result.add(new Playlist.Insert(playlistid, position + i, items.get(i)));
+        }
+
+        return result;
+    }
+
+    /**
+     * @param playlistid Id of the playlist
+     * @param positions Positions of the items, before removal
+     * @return Calls removing items of a playlist, once per position
+     */
+    public static List<AbstractCall<?>> newRemoveCalls(int playlistid, int... positions) {
+        int[] sorted = positions.clone();
+        Arrays.sort(sorted);
+
+        // Remove from the end, so positions of next items are unchanged.
+        List<AbstractCall<?>> result = new ArrayList<AbstractCall<?>>(sorted.length);
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            if (i == sorted.length - 1 || sorted[i] != sorted[i + 1]) {
+                result.add(new Playlist.Remove(playlistid, sorted[i]));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Send playlist edits in a single batch, and update mirrors.
+     * @param calls Playlist calls, in order
+     * @return true if all calls succeeded
+     */
+    public boolean execute(List<AbstractCall<?>> calls) {
+        boolean result = this.xbmcJson.executeBatch(calls) == calls.size();
+        this.onExecuted(calls);
+
+        return result;
+    }
+
+    /**
+     * Update mirrors with the playlist edits of sent calls. Other calls are
+     * ignored.
+     * @param calls Sent calls, in order
+     */
+    public synchronized void onExecuted(List<AbstractCall<?>> calls) {
+        for (AbstractCall<?> call : calls) {
+            if (EDITS.contains(call.getName())) {
+                this.apply(call);
+            }
+        }
+    }
+
+    /**
+     * Apply a sent playlist edit to the mirror, drop the mirror when the edit
+     * failed or can not be mirrored.
+     * @param call Sent playlist edit
+     */
+    private void apply(AbstractCall<?> call) {
+        JsonNode params = call.getRequest().path("params");
+        int playlistid = params.path("playlistid").getIntValue();
+        Mirror mirror = this.mirrors.get(playlistid);
+
+        if (call.getResult() == null) {
+            this.mirrors.remove(playlistid);
+            return;
+        }
+
+        if (Playlist.Clear.API_TYPE.equals(call.getName())) {
+            this.mirrors.put(playlistid, new Mirror(
+                    new ArrayList<AllItems>(), System.currentTimeMillis()));
+            return;
+        }
+
+        if (mirror == null) {
+            return;
+        }
+
+        boolean mirrored = false;
+        int size = mirror.items.size();
+        AllItems entry = toEntry(params.path("item"));
+
+        switch (call.getName()) {
+        case Playlist.Add.API_TYPE:
+            if (entry != null) {
+                mirror.items.add(entry);
+                mirrored = true;
+            }
+            break;
+
+        case Playlist.Insert.API_TYPE:
+            int position = params.path("position").getIntValue();
+            if (entry != null && position <= size) {
+                mirror.items.add(position, entry);
+                mirrored = true;
+            }
+            break;
+
+        case Playlist.Remove.API_TYPE:
+            int removed = params.path("position").getIntValue();
+            if (removed < size) {
+                mirror.items.remove(removed);
+                mirrored = true;
+            }
+            break;
+
+        case Playlist.Swap.API_TYPE:
+            int position1 = params.path("position1").getIntValue();
+            int position2 = params.path("position2").getIntValue();
+            if (Math.max(position1, position2) < size) {
+                Collections.swap(mirror.items, position1, position2);
+                mirrored = true;
+            }
+            break;
+        }
+
+        if (!mirrored) {
+            this.mirrors.remove(playlistid);
+        }
+    }
+
+    /**
+     * @param playlistid Id of the playlist
+     * @return Items of the playlist, from mirror when up to date
+     */
+    public List<AllItems> getItems(int playlistid) {
+        Mirror mirror;
+
+        synchronized (this) {
+            mirror = this.mirrors.get(playlistid);
+
+            if (mirror != null && System.currentTimeMillis() - mirror.time < MIRROR_TTL) {
+                return new ArrayList<AllItems>(mirror.items);
+            }
+        }
+
+        List<AllItems> items = this.xbmcJson.getResults(
+                new Playlist.GetItems(playlistid, ITEM_PROPERTIES));
+        List<AllItems> result = Collections.emptyList();
+
+        if (items != null) {
+            result = new ArrayList<AllItems>(items);
+
+            synchronized (this) {
+                this.mirrors.put(playlistid, new Mirror(
+                        new ArrayList<AllItems>(items), System.currentTimeMillis()));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Drop mirror of a playlist, edited by another client.
+     * @param playlistid Id of the playlist
+     */
+    public synchronized void invalidate(int playlistid) {
+        this.mirrors.remove(playlistid);
+    }
+
+    /**
+     * @param tvshowid Id of the tvshow
+     * @return Items of all episodes of a tvshow, in season and episode order
+     */
+    public List<PlaylistModel.Item> getEpisodeItems(int tvshowid) {
+        List<EpisodeDetail> episodes = this.xbmcJson.getResults(new VideoLibrary.GetEpisodes(
+                tvshowid,
+                new ListModel.Sort(false, "episode", ListModel.Sort.Order.ASCENDING)));
+        List<PlaylistModel.Item> result = new ArrayList<PlaylistModel.Item>();
+
+        if (episodes != null) {
+            for (EpisodeDetail episode : episodes) {
+                result.add(new PlaylistModel.Item(
+                        new PlaylistModel.Item.Episodeid(episode.episodeid)));
+            }
+        } else {
+            this.xbmcNode.logI(String.format("No episodes for tvshow %d", tvshowid));
+        }
+
+        return result;
+    }
+
+    /**
+     * @param item Added item (json), as sent by Playlist.Add or Playlist.Insert
+     * @return Mirror entry of the item, null if the item is not a single entry
+     * (album, directory...)
+     */
+    private static AllItems toEntry(JsonNode item) {
+        ObjectNode node = OM.createObjectNode();
+        node.put(AllItems.LABEL, "");
+
+        if (item.has("movieid")) {
+            node.put(AllItems.TYPE, "movie");
+            node.put(AllItems.ID, item.get("movieid").getIntValue());
+        } else if (item.has("episodeid")) {
+            node.put(AllItems.TYPE, "episode");
+            node.put(AllItems.ID, item.get("episodeid").getIntValue());
+        } else if (item.has("songid")) {
+            node.put(AllItems.TYPE, "song");
+            node.put(AllItems.ID, item.get("songid").getIntValue());
+        } else if (item.has("musicvideoid")) {
+            node.put(AllItems.TYPE, "musicvideo");
+            node.put(AllItems.ID, item.get("musicvideoid").getIntValue());
+        } else {
+            return null;
+        }
+
+        return new AllItems(node);
+    }
+}
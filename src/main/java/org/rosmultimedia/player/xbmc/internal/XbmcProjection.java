@@ -0,0 +1,103 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal;
+
+import java.io.IOException;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+
+import com.google.common.base.Strings;
+
+/**
+ * Property projection profiles of library requests.
+ *
+ * <ul>
+ * <li>LIST : labels and few fields of list views.</li>
+ * <li>DETAIL : all fields, the only profile kept in the library index.</li>
+ * <li>PLAYBACK : fields needed to start or resume playback.</li>
+ * </ul>
+ * The profile is chosen by the "profile" key of the request data (json),
+ * DETAIL by default.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public enum XbmcProjection {
+    LIST,
+    DETAIL,
+    PLAYBACK;
+
+    /**
+     * Key of the profile in request data.
+     */
+    public static final String KEY = "profile";
+
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    /**
+     * @param name Name of the profile, case insensitive
+     * @return Profile, DETAIL if name is unknown
+     */
+    public static XbmcProjection fromName(String name) {
+        XbmcProjection result = DETAIL;
+
+        if (!Strings.isNullOrEmpty(name)) {
+            try {
+                result = XbmcProjection.valueOf(name.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                result = DETAIL;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param data Request data (json)
+     * @return Profile of the request
+     */
+    public static XbmcProjection fromData(String data) {
+        XbmcProjection result = DETAIL;
+
+        if (!Strings.isNullOrEmpty(data) && data.contains(KEY)) {
+            try {
+                result = fromName(OM.readTree(data).path(KEY).getTextValue());
+            } catch (IOException e) {
+                result = DETAIL;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param data Request data (json)
+     * @return Request data without the profile key
+     */
+    public static String strip(String data) {
+        String result = data;
+
+        if (!Strings.isNullOrEmpty(data) && data.contains(KEY)) {
+            try {
+                JsonNode node = OM.readTree(data);
+
+                if (node.isObject()) {
+                    ((ObjectNode) node).remove(KEY);
+                    result = node.toString();
+                }
+            } catch (IOException e) {
+                result = data;
+            }
+        }
+
+        return result;
+    }
+}
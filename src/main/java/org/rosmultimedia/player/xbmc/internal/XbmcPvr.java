@@ -0,0 +1,429 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.rosmultimedia.player.xbmc.XbmcNode;
+import org.rosmultimedia.player.xbmc.internal.collection.IntHashSet;
+import org.rosmultimedia.player.xbmc.internal.collection.IntObjectMap;
+import org.rosmultimedia.player.xbmc.jsonrpc.XbmcJson;
+import org.xbmc.android.jsonrpc.api.call.PVR;
+import org.xbmc.android.jsonrpc.api.call.Player;
+import org.xbmc.android.jsonrpc.api.model.PVRModel;
+import org.xbmc.android.jsonrpc.api.model.PVRModel.ChannelDetail;
+import org.xbmc.android.jsonrpc.api.model.PVRModel.ChannelGroupDetail;
+import org.xbmc.android.jsonrpc.api.model.PVRModel.ChannelGroupId;
+
+import com.google.common.base.Objects;
+
+import smarthome_media_msgs.PlayerInfo;
+
+/**
+ * Xbmc PVR module.
+ *
+ * Keeps the channel directory of xbmc (groups and ordered channel ids),
+ * refreshed in background one group at a time. Channel up and down resolve
+ * the next channel from the directory and open it with a single
+ * Player.Open, details of the adjacent channels are loaded in advance.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcPvr {
+    public static final String OP_CHANNEL_UP = "op_channel_up";
+    public static final String OP_CHANNEL_DOWN = "op_channel_down";
+
+    /**
+     * Uri of a channel to open : channel://{channelid}
+     */
+    public static final String URI_CHANNEL = "channel://";
+
+    /**
+     * Player item type of a channel.
+     */
+    public static final String MEDIA_TYPE_CHANNEL = "channel";
+
+    private static final long REFRESH_PERIOD = 600;
+
+    /**
+     * Properties of directory listing, kept small.
+     */
+    private static final String[] LIST_PROPERTIES = {
+        PVRModel.ChannelFields.CHANNELTYPE,
+        PVRModel.ChannelFields.HIDDEN
+    };
+
+    /**
+     * Properties of prefetched channel details.
+     */
+    private static final String[] DETAIL_PROPERTIES = {
+        PVRModel.ChannelFields.CHANNEL,
+        PVRModel.ChannelFields.CHANNELTYPE,
+        PVRModel.ChannelFields.HIDDEN,
+        PVRModel.ChannelFields.LOCKED,
+        PVRModel.ChannelFields.THUMBNAIL,
+        PVRModel.ChannelFields.LASTPLAYED
+    };
+
+    /**
+     * Xbmc node.
+     */
+    private final XbmcNode xbmcNode;
+
+    /**
+     * Xbmc json-rpc.
+     */
+    private final XbmcJson xbmcJson;
+
+    /**
+     * Channels by id, from listing or details.
+     */
+    private final IntObjectMap<ChannelDetail> channels = new IntObjectMap<ChannelDetail>();
+
+    /**
+     * Channels with full details.
+     */
+    private final IntObjectMap<ChannelDetail> details = new IntObjectMap<ChannelDetail>();
+
+    /**
+     * Ordered visible channel ids of all tv and all radio channels.
+     */
+    private volatile int[] tvChannels = new int[0];
+    private volatile int[] radioChannels = new int[0];
+
+    /**
+     * All channel ids (hidden included) of last tv and radio listings, null
+     * until listed.
+     */
+    private IntHashSet tvListed;
+    private IntHashSet radioListed;
+
+    private volatile List<ChannelGroupDetail> groups = Collections.emptyList();
+
+    /**
+     * Next group refreshed in background : tv, radio, then groups.
+     */
+    private int refreshStep;
+
+    /**
+     * XbmcPvr constructor.
+     * @param xbmcJson {@link XbmcJson} xbmc json-rpc
+     * @param node {@link XbmcNode} xbmc node
+     */
+    public XbmcPvr(XbmcJson xbmcJson, XbmcNode node) {
+        this.xbmcJson = xbmcJson;
+        this.xbmcNode = node;
+    }
+
+    /**
+     * Schedule background refresh of the channel directory.
+     * @param scheduler Scheduler of background tasks
+     * @return Periodic refresh, cancelled on shutdown
+     */
+    public ScheduledFuture<?> start(ScheduledExecutorService scheduler) {
+        return scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                XbmcPvr.this.refreshNext();
+            }
+        }, 0, REFRESH_PERIOD / 3, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Open a channel.
+     * @param channelid Id of the channel
+     * @return true if the channel was opened
+     */
+    public boolean open(int channelid) {
+        boolean result = this.xbmcJson.getResult(
+                new Player.Open(new Player.Open.ItemChannelId(channelid))) != null;
+
+        if (result) {
+            this.prefetchAdjacent(channelid);
+        }
+
+        return result;
+    }
+
+    /**
+     * Open the next or previous channel of the playing one.
+     * @param playerInfo {@link PlayerInfo} of the playing channel
+     * @param offset 1 for channel up, -1 for channel down
+     * @return true if a channel was opened
+     */
+    public boolean zap(PlayerInfo playerInfo, int offset) {
+        if (!MEDIA_TYPE_CHANNEL.equals(playerInfo.getMediatype().getValue())) {
+            return false;
+        }
+
+        int current = playerInfo.getMediaid();
+        int[] ids = this.getChannelIds(current);
+
+        if (ids.length == 0) {
+            this.refreshDirectory();
+            ids = this.getChannelIds(current);
+        }
+
+        int position = indexOf(ids, current);
+        boolean result = false;
+
+        if (position >= 0) {
+            int next = ids[(position + offset + ids.length) % ids.length];
+            result = this.open(next);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param channelid Id of the channel
+     * @return Details of the channel, loaded if not cached
+     */
+    public ChannelDetail getChannel(int channelid) {
+        ChannelDetail result;
+
+        synchronized (this) {
+            result = this.details.get(channelid);
+        }
+
+        if (result == null) {
+            result = this.loadDetails(channelid);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Channel groups, tv and radio
+     */
+    public List<ChannelGroupDetail> getGroups() {
+        return this.groups;
+    }
+
+    /**
+     * @param radio true for radio channels
+     * @return Ordered visible channels
+     */
+    public List<ChannelDetail> getChannels(boolean radio) {
+        int[] ids = radio ? this.radioChannels : this.tvChannels;
+        List<ChannelDetail> result = new ArrayList<ChannelDetail>(ids.length);
+
+        synchronized (this) {
+            for (int id : ids) {
+                ChannelDetail channel = this.channels.get(id);
+
+                if (channel != null) {
+                    result.add(channel);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Load details of the channels before and after a channel.
+     * @param channelid Id of the channel
+     */
+    private void prefetchAdjacent(final int channelid) {
+        final int[] ids = this.getChannelIds(channelid);
+        final int position = indexOf(ids, channelid);
+
+        if (position < 0 || this.xbmcNode.getScheduler() == null) {
+            return;
+        }
+
+        try {
+            this.xbmcNode.getScheduler().execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int offset : new int[] { 1, -1 }) {
+                        int id = ids[(position + offset + ids.length) % ids.length];
+                        boolean cached;
+
+                        synchronized (XbmcPvr.this) {
+                            cached = XbmcPvr.this.details.containsKey(id);
+                        }
+
+                        if (!cached) {
+                            XbmcPvr.this.loadDetails(id);
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Node is stopping, channels are loaded on demand.
+        }
+    }
+
+    private ChannelDetail loadDetails(int channelid) {
+        ChannelDetail result = this.xbmcJson.getResult(
+                new PVR.GetChannelDetails(channelid, DETAIL_PROPERTIES));
+
+        if (result != null) {
+            synchronized (this) {
+                this.details.put(channelid, result);
+                this.channels.put(channelid, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Refresh one part of the directory, keep serving the previous one meanwhile.
+     */
+    private void refreshNext() {
+        if (!this.xbmcJson.getHealth().isAvailable()) {
+            return;
+        }
+
+        int step;
+        synchronized (this) {
+            step = this.refreshStep;
+            this.refreshStep = (this.refreshStep + 1) % 3;
+        }
+
+        switch (step) {
+        case 0:
+            this.refreshChannels(false);
+            break;
+        case 1:
+            this.refreshChannels(true);
+            break;
+        default:
+            this.refreshGroups();
+            break;
+        }
+    }
+
+    private void refreshDirectory() {
+        this.refreshChannels(false);
+        this.refreshChannels(true);
+    }
+
+    private void refreshGroups() {
+        List<ChannelGroupDetail> result = new ArrayList<ChannelGroupDetail>();
+
+        for (String type : new String[] {
+                PVRModel.ChannelType.TV, PVRModel.ChannelType.RADIO }) {
+            List<ChannelGroupDetail> items = this.xbmcJson.getResults(
+                    new PVR.GetChannelGroups(type));
+
+            if (items != null) {
+                result.addAll(items);
+            }
+        }
+
+        this.groups = Collections.unmodifiableList(result);
+    }
+
+    private void refreshChannels(boolean radio) {
+        List<ChannelDetail> items = this.xbmcJson.getResults(new PVR.GetChannels(
+                new ChannelGroupId(radio
+                        ? ChannelGroupId.StringArg.ALLRADIO
+                        : ChannelGroupId.StringArg.ALLTV),
+                LIST_PROPERTIES));
+
+        if (items == null) {
+            return;
+        }
+
+        int[] ids = new int[items.size()];
+        int count = 0;
+        IntHashSet listed = new IntHashSet(items.size());
+
+        synchronized (this) {
+            for (ChannelDetail item : items) {
+                listed.add(item.channelid);
+
+                ChannelDetail detail = this.details.get(item.channelid);
+
+                if (detail == null || !sameListing(detail, item)) {
+                    this.details.remove(item.channelid);
+                    this.channels.put(item.channelid, item);
+                }
+
+                if (item.hidden == null || !item.hidden) {
+                    ids[count++] = item.channelid;
+                }
+            }
+
+            if (radio) {
+                this.radioListed = listed;
+            } else {
+                this.tvListed = listed;
+            }
+
+            this.removeUnlisted();
+        }
+
+        ids = Arrays.copyOf(ids, count);
+
+        if (radio) {
+            this.radioChannels = ids;
+        } else {
+            this.tvChannels = ids;
+        }
+    }
+
+    /**
+     * Drop channels removed from xbmc, once tv and radio are both listed.
+     */
+    private void removeUnlisted() {
+        if (this.tvListed == null || this.radioListed == null) {
+            return;
+        }
+
+        for (int channelid : this.channels.keys()) {
+            if (!this.tvListed.contains(channelid) && !this.radioListed.contains(channelid)) {
+                this.channels.remove(channelid);
+                this.details.remove(channelid);
+            }
+        }
+    }
+
+    /**
+     * @param channelid Id of a channel
+     * @return Ordered channel ids of the list of the channel
+     */
+    private int[] getChannelIds(int channelid) {
+        int[] result = this.tvChannels;
+
+        if (indexOf(result, channelid) < 0 && indexOf(this.radioChannels, channelid) >= 0) {
+            result = this.radioChannels;
+        }
+
+        return result;
+    }
+
+    private static boolean sameListing(ChannelDetail detail, ChannelDetail item) {
+        return Objects.equal(detail.label, item.label)
+                && Objects.equal(detail.hidden, item.hidden)
+                && Objects.equal(detail.channeltype, item.channeltype);
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -15,6 +15,8 @@ import org.xbmc.android.jsonrpc.api.call.Application;
 import org.xbmc.android.jsonrpc.api.model.ApplicationModel.PropertyValue;
 import org.xbmc.android.jsonrpc.api.model.GlobalModel.Toggle;
 
+import com.google.common.base.Strings;
+
 import smarthome_media_msgs.MediaAction;
 import smarthome_media_msgs.SpeakerInfo;
 import smarthome_media_msgs.StateData;
@@ -28,6 +30,11 @@ import smarthome_media_msgs.ToggleMuteSpeakerResponse;
  *
  */
 public class XbmcSpeaker implements ISpeaker {
+    /**
+     * Delay between polls of a volume pushed by notifications, in ms.
+     */
+    private static final long RECONCILE_PERIOD = 60000;
+
     /**
      * Xbmc node.
      */
@@ -38,6 +45,19 @@ public class XbmcSpeaker implements ISpeaker {
      */
     private XbmcJson xbmcJson;
 
+    /**
+     * Name and version of xbmc, loaded once per session.
+     */
+    private String name;
+    private String version;
+
+    /**
+     * Volume and mute, pushed by notifications or polled, -1 if unknown.
+     */
+    private int level = -1;
+    private boolean muted;
+    private long updated;
+
     /**
      * XbmcSpeaker constructor.
      * @param xbmcJson {@link XbmcJson} xbmc json-rpc
@@ -54,16 +74,72 @@ public class XbmcSpeaker implements ISpeaker {
     }
 
     public void load(SpeakerInfo speakerInfo) {
+        if (this.name == null) {
+            this.loadStaticInfo();
+        }
+
+        // Volume is pushed by notifications, polled only to reconcile.
+        synchronized (this) {
+            if (this.xbmcNode.isNotified() && this.level >= 0
+                    && System.currentTimeMillis() - this.updated < RECONCILE_PERIOD) {
+                speakerInfo.setMuted(this.muted);
+                speakerInfo.setLevel(this.level);
+                return;
+            }
+        }
+
+        // Name and version do not change in a session, only volume is polled.
         PropertyValue property = this.xbmcJson.getResult(
                 new Application.GetProperties(
                         PropertyValue.MUTED,
-                        PropertyValue.NAME,
-                        PropertyValue.VERSION,
                         PropertyValue.VOLUME));
 
-        if (property != null) {
+        if (property != null && property.muted != null && property.volume != null) {
             speakerInfo.setMuted(property.muted);
             speakerInfo.setLevel(property.volume);
+            this.onVolumeChanged(property.volume, property.muted);
+        }
+    }
+
+    /**
+     * Volume changed in xbmc (Application.OnVolumeChanged).
+     * @param level Volume
+     * @param muted Mute
+     */
+    public synchronized void onVolumeChanged(int level, boolean muted) {
+        this.level = level;
+        this.muted = muted;
+        this.updated = System.currentTimeMillis();
+    }
+
+    /**
+     * Drop static properties, loaded again on next update (session changed).
+     */
+    public void resetStaticInfo() {
+        this.name = null;
+        this.version = null;
+
+        synchronized (this) {
+            this.level = -1;
+        }
+    }
+
+    private void loadStaticInfo() {
+        PropertyValue property = this.xbmcJson.getResult(
+                new Application.GetProperties(
+                        PropertyValue.NAME,
+                        PropertyValue.VERSION));
+
+        if (property != null && property.name != null) {
+            this.name = property.name;
+            this.version = property.version == null
+                    ? ""
+                    : String.format("%s.%s %s",
+                            property.version.major,
+                            property.version.minor,
+                            Strings.nullToEmpty(property.version.tag));
+
+            this.xbmcNode.logI(String.format("Speaker : %s %s", this.name, this.version));
         }
     }
 
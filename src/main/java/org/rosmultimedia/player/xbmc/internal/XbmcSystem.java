@@ -54,9 +54,11 @@ public class XbmcSystem implements ISystem<StateData, MediaAction> {
         switch (message.getMethod()) {
         case OP_POWER:
             this.xbmcNode.wakeOnLan();
+            this.xbmcJson.getHealth().onWake();
             break;
         case OP_SHUTDOWN:
             this.xbmcJson.getResult(new System.Shutdown());
+            this.xbmcJson.getHealth().onShutdown();
             break;
         default:
 
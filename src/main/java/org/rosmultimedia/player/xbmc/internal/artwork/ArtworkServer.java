@@ -0,0 +1,127 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal.artwork;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Http server of proxied images.
+ *
+ * Images are served with the hash of their stored bytes as ETag : a request
+ * with a matching If-None-Match header is answered with 304 Not Modified,
+ * without the image body. An image downloaded again from xbmc gets a new
+ * ETag.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class ArtworkServer implements HttpHandler {
+    private static final String CACHE_CONTROL = "public, max-age=86400";
+
+    private final XbmcArtwork artwork;
+    private final HttpServer server;
+
+    /**
+     * @param artwork {@link XbmcArtwork} resolving images
+     * @param port Listening port
+     * @param executor Executor of http requests
+     * @throws IOException if port can not be bound
+     */
+    public ArtworkServer(XbmcArtwork artwork, int port, Executor executor) throws IOException {
+        this.artwork = artwork;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.createContext(XbmcArtwork.CONTEXT, this);
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    public void stop() {
+        this.server.stop(0);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            boolean head = "HEAD".equals(method);
+
+            if (!head && !"GET".equals(method)) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                return;
+            }
+
+            String key = exchange.getRequestURI().getPath()
+                    .substring(XbmcArtwork.CONTEXT.length());
+
+            // Keys are file names of the store, nothing else is accepted.
+            if (!XbmcArtwork.isKey(key)) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1);
+                return;
+            }
+
+            String source = XbmcArtwork.getSource(exchange.getRequestURI().getRawQuery());
+            ArtworkStore.Image image = this.artwork.getImage(key, source);
+
+            if (image == null) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+                return;
+            }
+
+            String etag = "\"" + image.getTag() + "\"";
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("ETag", etag);
+            headers.set("Cache-Control", CACHE_CONTROL);
+
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+                return;
+            }
+
+            byte[] data = image.getData();
+            headers.set("Content-Type", getContentType(data));
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, head ? -1 : data.length);
+
+            if (!head) {
+                OutputStream output = exchange.getResponseBody();
+                output.write(data);
+                output.close();
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String getContentType(byte[] data) {
+        String result = "application/octet-stream";
+
+        if (data.length > 3) {
+            if ((data[0] & 0xff) == 0xff && (data[1] & 0xff) == 0xd8) {
+                result = "image/jpeg";
+            } else if ((data[0] & 0xff) == 0x89 && data[1] == 'P' && data[2] == 'N' && data[3] == 'G') {
+                result = "image/png";
+            } else if (data[0] == 'G' && data[1] == 'I' && data[2] == 'F') {
+                result = "image/gif";
+            }
+        }
+
+        return result;
+    }
+}
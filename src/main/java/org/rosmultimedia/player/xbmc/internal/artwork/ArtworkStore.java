@@ -0,0 +1,295 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal.artwork;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Bounded two level store of artwork bytes.
+ *
+ * Recently used images are kept in memory, all images are written to disk.
+ * Both levels evict least recently used entries once their size budget is
+ * exceeded. Each image is tagged with the hash of its bytes when stored or
+ * read back from disk.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class ArtworkStore {
+    private static final String SUFFIX = ".img";
+
+    /**
+     * Bytes of an image, with their hash.
+     */
+    static final class Image {
+        private final byte[] data;
+        private final String tag;
+
+        private Image(byte[] data) {
+            this.data = data;
+            this.tag = XbmcArtwork.hash(data);
+        }
+
+        byte[] getData() {
+            return this.data;
+        }
+
+        /**
+         * @return Hex SHA-1 of the bytes
+         */
+        String getTag() {
+            return this.tag;
+        }
+    }
+
+    private final File directory;
+    private final long maxMemory;
+    private final long maxDisk;
+
+    /**
+     * Memory level, in access order.
+     */
+    private final LinkedHashMap<String, Image> memory =
+            new LinkedHashMap<String, Image>(64, 0.75f, true);
+
+    private long memorySize;
+    private long diskSize;
+
+    /**
+     * @param directory Directory of the disk level, null to keep images in memory only
+     * @param maxMemory Maximum bytes kept in memory
+     * @param maxDisk Maximum bytes kept on disk
+     */
+    public ArtworkStore(File directory, long maxMemory, long maxDisk) {
+        this.directory = directory;
+        this.maxMemory = maxMemory;
+        this.maxDisk = maxDisk;
+
+        if (this.directory != null) {
+            this.directory.mkdirs();
+
+            for (File file : this.listFiles()) {
+                this.diskSize += file.length();
+            }
+        }
+    }
+
+    /**
+     * @param key Key of the image
+     * @return Image, null if not stored
+     */
+    Image get(String key) {
+        Image result;
+
+        synchronized (this) {
+            result = this.memory.get(key);
+        }
+
+        if (result == null && this.directory != null) {
+            File file = this.getFile(key);
+
+            if (file.isFile()) {
+                try {
+                    result = new Image(readFile(file));
+                    file.setLastModified(System.currentTimeMillis());
+                    this.putMemory(key, result);
+                } catch (IOException e) {
+                    result = null;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param key Key of the image
+     * @return true if the image is stored
+     */
+    public boolean contains(String key) {
+        synchronized (this) {
+            if (this.memory.containsKey(key)) {
+                return true;
+            }
+        }
+
+        return this.directory != null && this.getFile(key).isFile();
+    }
+
+    /**
+     * @param key Key of the image
+     * @param data Bytes of the image
+     * @return Stored image
+     */
+    Image put(String key, byte[] data) {
+        Image result = new Image(data);
+        this.putMemory(key, result);
+
+        if (this.directory != null && data.length <= this.maxDisk) {
+            File file = this.getFile(key);
+            File temp = new File(this.directory, key + ".tmp");
+            long previous = file.length();
+
+            try {
+                writeFile(temp, data);
+
+                if (temp.renameTo(file) || (file.delete() && temp.renameTo(file))) {
+                    synchronized (this) {
+                        this.diskSize += data.length - previous;
+                    }
+                    this.trimDisk();
+                }
+            } catch (IOException e) {
+                temp.delete();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Drops the memory level, disk level is kept.
+     */
+    public synchronized void clearMemory() {
+        this.memory.clear();
+        this.memorySize = 0;
+    }
+
+    public synchronized long getMemorySize() {
+        return this.memorySize;
+    }
+
+    public synchronized long getDiskSize() {
+        return this.diskSize;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("ArtworkStore[memory=%d images/%dkB, disk=%dkB]",
+                this.memory.size(), this.memorySize / 1024, this.diskSize / 1024);
+    }
+
+    private synchronized void putMemory(String key, Image image) {
+        if (image.data.length > this.maxMemory) {
+            return;
+        }
+
+        Image previous = this.memory.put(key, image);
+
+        if (previous != null) {
+            this.memorySize -= previous.data.length;
+        }
+
+        this.memorySize += image.data.length;
+
+        Iterator<Image> eldest = this.memory.values().iterator();
+        while (this.memorySize > this.maxMemory && eldest.hasNext()) {
+            this.memorySize -= eldest.next().data.length;
+            eldest.remove();
+        }
+    }
+
+    private void trimDisk() {
+        synchronized (this) {
+            if (this.diskSize <= this.maxDisk) {
+                return;
+            }
+        }
+
+        File[] files = this.listFiles();
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File left, File right) {
+                long l = left.lastModified();
+                long r = right.lastModified();
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+
+        for (int i = 0; i < files.length && size > this.maxDisk; i++) {
+            long length = files[i].length();
+
+            if (files[i].delete()) {
+                size -= length;
+            }
+        }
+
+        synchronized (this) {
+            this.diskSize = size;
+        }
+    }
+
+    private File[] listFiles() {
+        File[] files = this.directory.listFiles();
+        int count = 0;
+
+        if (files == null) {
+            return new File[0];
+        }
+
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX)) {
+                files[count++] = file;
+            }
+        }
+
+        return Arrays.copyOf(files, count);
+    }
+
+    private File getFile(String key) {
+        return new File(this.directory, key + SUFFIX);
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] result = new byte[(int) file.length()];
+        InputStream input = new FileInputStream(file);
+
+        try {
+            int offset = 0;
+            int read;
+
+            while (offset < result.length
+                    && (read = input.read(result, offset, result.length - offset)) > 0) {
+                offset += read;
+            }
+
+            if (offset < result.length) {
+                throw new IOException("Truncated artwork " + file);
+            }
+        } finally {
+            input.close();
+        }
+
+        return result;
+    }
+
+    private static void writeFile(File file, byte[] data) throws IOException {
+        OutputStream output = new FileOutputStream(file);
+
+        try {
+            output.write(data);
+        } finally {
+            output.close();
+        }
+    }
+}
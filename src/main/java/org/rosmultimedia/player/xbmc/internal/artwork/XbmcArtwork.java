@@ -0,0 +1,453 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal.artwork;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.UnknownHostException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.rosmultimedia.player.xbmc.IXbmcNode;
+import org.rosmultimedia.player.xbmc.XbmcConfig;
+import org.rosmultimedia.player.xbmc.internal.XbmcUtils;
+import org.rosmultimedia.player.xbmc.jsonrpc.XbmcJson;
+import org.xbmc.android.jsonrpc.api.call.Files.PrepareDownload;
+import org.xbmc.android.jsonrpc.api.call.Files.PrepareDownload.PrepareDownloadResult;
+import org.xbmc.android.jsonrpc.io.Base64;
+
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Xbmc artwork proxy.
+ *
+ * Image urls from xbmc json-rpc are rewritten to the driver, images are
+ * resolved with Files.PrepareDownload, downloaded once from xbmc and
+ * served from {@link ArtworkStore} by {@link ArtworkServer}.
+ *
+ * When no artwork port is configured, urls are only converted by
+ * {@link XbmcUtils#getImageUrl(String)}.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcArtwork {
+    public static final String CONTEXT = "/artwork/";
+
+    private static final String PARAM_SOURCE = "src=";
+
+    /**
+     * Scheme of xbmc artwork urls, the only proxied sources.
+     */
+    private static final String SCHEME_IMAGE = "image://";
+
+    /**
+     * Length of keys, hex SHA-1 of the source.
+     */
+    private static final int KEY_LENGTH = 40;
+
+    /**
+     * Threads and queue of http requests, and of prefetch downloads.
+     */
+    private static final int REQUEST_THREADS = 4;
+    private static final int REQUEST_QUEUE = 64;
+    private static final int DOWNLOAD_THREADS = 2;
+    private static final int DOWNLOAD_QUEUE = 256;
+    private static final int TIMEOUT = 5000;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Xbmc node.
+     */
+    private final IXbmcNode xbmcNode;
+
+    /**
+     * Xbmc json-rpc.
+     */
+    private final XbmcJson xbmcJson;
+
+    /**
+     * Executors of http requests and of prefetch downloads, apart from the
+     * node scheduler. Null if proxy is disabled.
+     */
+    private final ExecutorService requests;
+    private final ExecutorService downloads;
+
+    private final String xbmcUrl;
+    private final String authorization;
+
+    /**
+     * Base url of proxied images, null if proxy is disabled.
+     */
+    private final String publicUrl;
+    private final int port;
+    private final int prefetchCount;
+
+    private final ArtworkStore store;
+    private final Set<String> pending =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private ArtworkServer server;
+
+    /**
+     * XbmcArtwork constructor.
+     * @param xbmcJson {@link XbmcJson} xbmc json-rpc
+     * @param node {@link IXbmcNode} xbmc node
+     * @param config {@link XbmcConfig} of the node
+     */
+    public XbmcArtwork(XbmcJson xbmcJson, IXbmcNode node, XbmcConfig config) {
+        this.xbmcJson = xbmcJson;
+        this.xbmcNode = node;
+        this.port = config.getArtworkPort();
+        this.prefetchCount = config.getArtworkPrefetch();
+
+        this.xbmcUrl = String.format("http://%s:%d/",
+                config.getHost(),
+                config.getPort());
+
+        if (!Strings.isNullOrEmpty(config.getUser())
+                && !Strings.isNullOrEmpty(config.getPassword())) {
+            this.authorization = "Basic " + Base64.encodeToString(
+                    (config.getUser() + ":" + config.getPassword()).getBytes(), false);
+        } else {
+            this.authorization = null;
+        }
+
+        if (this.port > 0) {
+            this.publicUrl = String.format("http://%s:%d",
+                    getPublicHost(config.getArtworkHost()),
+                    this.port);
+
+            File directory = null;
+            if (!Strings.isNullOrEmpty(config.getArtworkCache())) {
+                directory = new File(config.getArtworkCache());
+            }
+
+            this.store = new ArtworkStore(directory,
+                    config.getArtworkMemory() * 1024L * 1024L,
+                    config.getArtworkDisk() * 1024L * 1024L);
+
+            // Requests over the queue are run by the server thread, which
+            // stops accepting meanwhile. Prefetches over the queue are dropped.
+            this.requests = newExecutor(REQUEST_THREADS, REQUEST_QUEUE, "xbmc-artwork-%d",
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            this.downloads = newExecutor(DOWNLOAD_THREADS, DOWNLOAD_QUEUE, "xbmc-prefetch-%d",
+                    new ThreadPoolExecutor.AbortPolicy());
+        } else {
+            this.publicUrl = null;
+            this.store = null;
+            this.requests = null;
+            this.downloads = null;
+        }
+    }
+
+    /**
+     * Start the http server of proxied images.
+     */
+    public void start() {
+        if (this.isEnabled() && this.server == null) {
+            try {
+                this.server = new ArtworkServer(this, this.port, this.requests);
+                this.server.start();
+                this.xbmcNode.logI(String.format("Artwork served on %s%s",
+                        this.publicUrl, CONTEXT));
+            } catch (IOException e) {
+                this.server = null;
+                this.xbmcNode.logE(e);
+            }
+        }
+    }
+
+    public void stop() {
+        if (this.server != null) {
+            this.server.stop();
+            this.server = null;
+            this.xbmcNode.logI(this.store.toString());
+        }
+
+        if (this.isEnabled()) {
+            this.requests.shutdownNow();
+            this.downloads.shutdownNow();
+        }
+    }
+
+    /**
+     * @return true if images are served by the driver
+     */
+    public boolean isEnabled() {
+        return this.publicUrl != null;
+    }
+
+    /**
+     * @return Number of browse results to prefetch
+     */
+    public int getPrefetchCount() {
+        return this.isEnabled() ? this.prefetchCount : 0;
+    }
+
+    /**
+     * Convert image url from xbmc json-rpc.
+     * @param url Image url from xbmc json-rpc
+     * @return Url of proxied image, or converted url if proxy is disabled
+     */
+    public String getImageUrl(String url) {
+        String result;
+
+        if (!this.isEnabled() || Strings.isNullOrEmpty(url)) {
+            result = XbmcUtils.getImageUrl(url);
+        } else {
+            result = this.publicUrl + CONTEXT + hash(url) + "?" + PARAM_SOURCE + encode(url);
+        }
+
+        return result;
+    }
+
+    /**
+     * Download an image in background if not already stored.
+     * @param url Image url from xbmc json-rpc, or url returned by {@link #getImageUrl(String)}
+     */
+    public void prefetch(String url) {
+        if (!this.isEnabled() || Strings.isNullOrEmpty(url)) {
+            return;
+        }
+
+        final String source = url.startsWith(this.publicUrl) ? getSource(url) : url;
+
+        if (isArtwork(source)) {
+            final String key = hash(source);
+
+            if (!this.store.contains(key) && this.pending.add(key)) {
+                try {
+                    this.downloads.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                XbmcArtwork.this.download(key, source);
+                            } finally {
+                                XbmcArtwork.this.pending.remove(key);
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    this.pending.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get image from store, or from xbmc if source is known.
+     * @param key Key of the image, checked by {@link #isKey(String)}
+     * @param source Image url from xbmc json-rpc, may be null
+     * @return Image, null if not found
+     */
+    ArtworkStore.Image getImage(String key, String source) {
+        if (!isKey(key)) {
+            return null;
+        }
+
+        ArtworkStore.Image result = this.store.get(key);
+
+        // Only artwork of xbmc is downloaded, not any file xbmc would serve.
+        if (result == null && isArtwork(source) && key.equals(hash(source))) {
+            result = this.download(key, source);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param key Key of an image, from a request
+     * @return true if the key is a hex SHA-1 (a file name of the store)
+     */
+    static boolean isKey(String key) {
+        boolean result = key != null && key.length() == KEY_LENGTH;
+
+        for (int i = 0; result && i < KEY_LENGTH; i++) {
+            char c = key.charAt(i);
+            result = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+        }
+
+        return result;
+    }
+
+    /**
+     * @param source Source of an image, from a request
+     * @return true if the source is an artwork url of xbmc
+     */
+    static boolean isArtwork(String source) {
+        return source != null && source.startsWith(SCHEME_IMAGE);
+    }
+
+    /**
+     * Resolve image with Files.PrepareDownload and download it from xbmc.
+     * @param key Key of the image
+     * @param source Image url from xbmc json-rpc
+     * @return Stored image, null on error
+     */
+    private ArtworkStore.Image download(String key, String source) {
+        ArtworkStore.Image result = null;
+
+        PrepareDownloadResult download = this.xbmcJson.getResult(new PrepareDownload(source));
+
+        if (download != null && !Strings.isNullOrEmpty(download.details)) {
+            try {
+                result = this.store.put(key,
+                        this.readUrl(new URL(this.xbmcUrl + download.details)));
+            } catch (IOException e) {
+                this.xbmcNode.logE(e);
+            }
+        }
+
+        return result;
+    }
+
+    private byte[] readUrl(URL url) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+
+        if (this.authorization != null) {
+            conn.setRequestProperty("Authorization", this.authorization);
+        }
+
+        conn.setConnectTimeout(TIMEOUT);
+        conn.setReadTimeout(TIMEOUT);
+
+        int code = conn.getResponseCode();
+        if (code != HttpURLConnection.HTTP_OK) {
+            conn.disconnect();
+            throw new IOException(String.format("Artwork %s returned code %d", url, code));
+        }
+
+        int length = conn.getContentLength();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(length > 0 ? length : 16 * 1024);
+        InputStream input = conn.getInputStream();
+
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while ((read = input.read(buffer)) > 0) {
+                output.write(buffer, 0, read);
+            }
+        } finally {
+            input.close();
+        }
+
+        return output.toByteArray();
+    }
+
+    /**
+     * @param query Query of a proxied image url
+     * @return Image url from xbmc json-rpc, null if not found
+     */
+    static String getSource(String query) {
+        String result = null;
+
+        if (query != null) {
+            int start = query.indexOf(PARAM_SOURCE);
+
+            if (start >= 0) {
+                int end = query.indexOf('&', start);
+                result = decode(query.substring(start + PARAM_SOURCE.length(),
+                        end < 0 ? query.length() : end));
+            }
+        }
+
+        return result;
+    }
+
+    static String hash(String value) {
+        try {
+            return hash(value.getBytes("utf-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hash(byte[] value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value);
+            char[] result = new char[digest.length * 2];
+
+            for (int i = 0; i < digest.length; i++) {
+                result[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+                result[i * 2 + 1] = HEX[digest[i] & 0xf];
+            }
+
+            return new String(result);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "utf-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "utf-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newExecutor(int threads, int queue, String name,
+            RejectedExecutionHandler handler) {
+        ThreadPoolExecutor result = new ThreadPoolExecutor(threads, threads,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queue),
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat(name)
+                        .build(),
+                handler);
+        result.allowCoreThreadTimeOut(true);
+
+        return result;
+    }
+
+    private static String getPublicHost(String host) {
+        String result = host;
+
+        if (Strings.isNullOrEmpty(result)) {
+            try {
+                result = InetAddress.getLocalHost().getHostAddress();
+            } catch (UnknownHostException e) {
+                result = "localhost";
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal.collection;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Open addressing hash set of primitive ints.
+ *
+ * {@link Integer#MIN_VALUE} is reserved as free slot marker and can not be
+ * stored, xbmc ids are always positive.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class IntHashSet {
+    static final int FREE = Integer.MIN_VALUE;
+
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int[] values;
+    private int size;
+    private int threshold;
+
+    public IntHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expected Expected number of values
+     */
+    public IntHashSet(int expected) {
+        this.allocate(tableSize(expected, LOAD_FACTOR));
+    }
+
+    /**
+     * Build set from boxed list, as returned by xbmc json-rpc models.
+     * @param values List to copy (null values are skipped)
+     * @return {@link IntHashSet}
+     */
+    public static IntHashSet of(List<Integer> values) {
+        IntHashSet result = new IntHashSet(values == null ? 0 : values.size());
+
+        if (values != null) {
+            for (Integer value : values) {
+                if (value != null) {
+                    result.add(value);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public boolean contains(int value) {
+        int mask = this.values.length - 1;
+        int slot = mix(value) & mask;
+
+        while (this.values[slot] != FREE) {
+            if (this.values[slot] == value) {
+                return true;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return false;
+    }
+
+    /**
+     * @param value Value to add
+     * @return true if the value was not already in the set
+     */
+    public boolean add(int value) {
+        if (value == FREE) {
+            throw new IllegalArgumentException("Value is reserved");
+        }
+
+        int mask = this.values.length - 1;
+        int slot = mix(value) & mask;
+
+        while (this.values[slot] != FREE) {
+            if (this.values[slot] == value) {
+                return false;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        this.values[slot] = value;
+
+        if (++this.size > this.threshold) {
+            this.rehash(this.values.length << 1);
+        }
+
+        return true;
+    }
+
+    /**
+     * @param value Value to remove
+     * @return true if the value was in the set
+     */
+    public boolean remove(int value) {
+        int mask = this.values.length - 1;
+        int slot = mix(value) & mask;
+
+        while (this.values[slot] != FREE) {
+            if (this.values[slot] == value) {
+                this.shift(slot);
+                this.size--;
+                return true;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return false;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(this.values, FREE);
+        this.size = 0;
+    }
+
+    /**
+     * @return Copy of values, in ascending order
+     */
+    public int[] toArray() {
+        int[] result = new int[this.size];
+        int index = 0;
+
+        for (int slot = 0; slot < this.values.length; slot++) {
+            if (this.values[slot] != FREE) {
+                result[index++] = this.values[slot];
+            }
+        }
+
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Spread low bits of ids (which are mostly sequential).
+     */
+    static int mix(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return Power of two table size holding expected values
+     */
+    static int tableSize(int expected, float loadFactor) {
+        int capacity = 2;
+
+        while (capacity * loadFactor < expected + 1) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+
+    private void shift(int free) {
+        int mask = this.values.length - 1;
+        int slot = (free + 1) & mask;
+
+        while (this.values[slot] != FREE) {
+            int ideal = mix(this.values[slot]) & mask;
+
+            if (((slot - ideal) & mask) >= ((slot - free) & mask)) {
+                this.values[free] = this.values[slot];
+                free = slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        this.values[free] = FREE;
+    }
+
+    private void allocate(int capacity) {
+        this.values = new int[capacity];
+        Arrays.fill(this.values, FREE);
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        int[] old = this.values;
+        this.allocate(capacity);
+
+        int mask = capacity - 1;
+
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] != FREE) {
+                int slot = mix(old[i]) & mask;
+
+                while (this.values[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+
+                this.values[slot] = old[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Open addressing hash map with primitive int keys.
+ *
+ * Library ids (movieid, songid, ...) are stored without boxing, values can
+ * not be null (null marks a free slot).
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ * @param <V> Type of values
+ */
+public class IntObjectMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int threshold;
+
+    public IntObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expected Expected number of entries
+     */
+    public IntObjectMap(int expected) {
+        this.allocate(IntHashSet.tableSize(expected, LOAD_FACTOR));
+    }
+
+    /**
+     * @param key Key to find
+     * @return Value mapped to key, null otherwise
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int mask = this.keys.length - 1;
+        int slot = IntHashSet.mix(key) & mask;
+
+        while (this.values[slot] != null) {
+            if (this.keys[slot] == key) {
+                return (V) this.values[slot];
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        return this.get(key) != null;
+    }
+
+    /**
+     * @param key Key of the entry
+     * @param value Value of the entry (not null)
+     * @return Previous value mapped to key, null otherwise
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+
+        int mask = this.keys.length - 1;
+        int slot = IntHashSet.mix(key) & mask;
+
+        while (this.values[slot] != null) {
+            if (this.keys[slot] == key) {
+                V previous = (V) this.values[slot];
+                this.values[slot] = value;
+                return previous;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        this.keys[slot] = key;
+        this.values[slot] = value;
+
+        if (++this.size > this.threshold) {
+            this.rehash(this.keys.length << 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * @param key Key of the entry to remove
+     * @return Removed value, null otherwise
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int mask = this.keys.length - 1;
+        int slot = IntHashSet.mix(key) & mask;
+
+        while (this.values[slot] != null) {
+            if (this.keys[slot] == key) {
+                V previous = (V) this.values[slot];
+                this.shift(slot);
+                this.size--;
+                return previous;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return null;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(this.values, null);
+        this.size = 0;
+    }
+
+    /**
+     * @return Copy of all keys
+     */
+    public int[] keys() {
+        int[] result = new int[this.size];
+        int index = 0;
+
+        for (int slot = 0; slot < this.values.length; slot++) {
+            if (this.values[slot] != null) {
+                result[index++] = this.keys[slot];
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Copy of all values
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<V>(this.size);
+
+        for (int slot = 0; slot < this.values.length; slot++) {
+            if (this.values[slot] != null) {
+                result.add((V) this.values[slot]);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Backward shift deletion, keeps probe chains without tombstones.
+     * @param free Slot to release
+     */
+    private void shift(int free) {
+        int mask = this.keys.length - 1;
+        int slot = (free + 1) & mask;
+
+        while (this.values[slot] != null) {
+            int ideal = IntHashSet.mix(this.keys[slot]) & mask;
+
+            if (((slot - ideal) & mask) >= ((slot - free) & mask)) {
+                this.keys[free] = this.keys[slot];
+                this.values[free] = this.values[slot];
+                free = slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        this.values[free] = null;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        this.allocate(capacity);
+
+        int mask = capacity - 1;
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = IntHashSet.mix(oldKeys[i]) & mask;
+
+                while (this.values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.internal.collection;
+
+/**
+ * Groups of int values by int key (tvshowid to episodeid, albumid to songid).
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class IntSetMultimap {
+    private static final int[] EMPTY = new int[0];
+
+    private final IntObjectMap<IntHashSet> groups;
+
+    public IntSetMultimap() {
+        this.groups = new IntObjectMap<IntHashSet>();
+    }
+
+    /**
+     * @param expected Expected number of keys
+     */
+    public IntSetMultimap(int expected) {
+        this.groups = new IntObjectMap<IntHashSet>(expected);
+    }
+
+    /**
+     * @return true if the value was not already in the group of key
+     */
+    public boolean put(int key, int value) {
+        IntHashSet group = this.groups.get(key);
+
+        if (group == null) {
+            group = new IntHashSet();
+            this.groups.put(key, group);
+        }
+
+        return group.add(value);
+    }
+
+    /**
+     * @return true if the value was in the group of key
+     */
+    public boolean remove(int key, int value) {
+        boolean result = false;
+        IntHashSet group = this.groups.get(key);
+
+        if (group != null) {
+            result = group.remove(value);
+
+            if (group.isEmpty()) {
+                this.groups.remove(key);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Values of key, in ascending order
+     */
+    public int[] get(int key) {
+        IntHashSet group = this.groups.get(key);
+        return group == null ? EMPTY : group.toArray();
+    }
+
+    public boolean containsKey(int key) {
+        return this.groups.containsKey(key);
+    }
+
+    public void removeAll(int key) {
+        this.groups.remove(key);
+    }
+
+    /**
+     * @return Number of keys
+     */
+    public int size() {
+        return this.groups.size();
+    }
+
+    public void clear() {
+        this.groups.clear();
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.jsonrpc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Splitter of the json-rpc stream of xbmc TCP interface in messages.
+ *
+ * Xbmc writes json messages (objects, or arrays of batch responses) with no
+ * delimiter between them. Bytes are read in the buffer of the decoder, and
+ * message boundaries are found by tracking the depth of braces and brackets
+ * outside of strings. Each message is handed over in place, as a range of
+ * the buffer : only the incomplete message at the end of a read is moved
+ * to the start of the buffer. Bytes between messages are skipped.
+ *
+ * Structural characters are ASCII, so the scan works on UTF-8 bytes without
+ * decoding them.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcFrameDecoder {
+	/**
+	 * Handler of decoded messages.
+	 */
+	public interface Handler {
+		/**
+		 * @param buffer Buffer of the message, valid during the call only
+		 * @param offset Offset of the message
+		 * @param length Length of the message
+		 */
+		void onFrame(byte[] buffer, int offset, int length) throws IOException;
+	}
+
+	private static final int INITIAL_SIZE = 16 * 1024;
+
+	/**
+	 * Largest message, bigger messages close the connection.
+	 */
+	private static final int MAX_SIZE = 64 * 1024 * 1024;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_SIZE);
+
+	/**
+	 * Start of the current message, -1 between messages.
+	 */
+	private int start = -1;
+
+	/**
+	 * Next byte to scan.
+	 */
+	private int scan;
+
+	private int depth;
+	private boolean string;
+	private boolean escape;
+
+	/**
+	 * @return Buffer to read into, from its position to its limit. The
+	 * buffer is grown when full.
+	 * @throws IOException if the current message is too large
+	 */
+	public ByteBuffer buffer() throws IOException {
+		if (!this.buffer.hasRemaining()) {
+			this.grow();
+		}
+
+		return this.buffer;
+	}
+
+	/**
+	 * Scan bytes read in the buffer, and hand over complete messages.
+	 * @param count Number of bytes read in the buffer, from its position
+	 * @param handler Handler of decoded messages
+	 * @throws IOException if the handler fails
+	 */
+	public void decode(int count, Handler handler) throws IOException {
+		ByteBuffer current = this.buffer;
+		byte[] bytes = current.array();
+		int end = current.position() + count;
+
+		current.position(end);
+
+		for (int i = this.scan; i < end; i++) {
+			byte b = bytes[i];
+
+			if (this.start < 0) {
+				// Between messages, skip up to the next message.
+				if (b == '{' || b == '[') {
+					this.start = i;
+					this.depth = 1;
+				}
+			} else if (this.string) {
+				if (this.escape) {
+					this.escape = false;
+				} else if (b == '\\') {
+					this.escape = true;
+				} else if (b == '"') {
+					this.string = false;
+				}
+			} else if (b == '"') {
+				this.string = true;
+			} else if (b == '{' || b == '[') {
+				this.depth++;
+			} else if (b == '}' || b == ']') {
+				this.depth--;
+
+				if (this.depth == 0) {
+					handler.onFrame(bytes, this.start, i + 1 - this.start);
+					this.start = -1;
+				}
+			}
+		}
+
+		this.scan = end;
+		this.compact();
+	}
+
+	/**
+	 * Move the incomplete message to the start of the buffer.
+	 */
+	private void compact() {
+		ByteBuffer current = this.buffer;
+		int from = this.start < 0 ? current.position() : this.start;
+
+		if (from > 0) {
+			current.limit(current.position());
+			current.position(from);
+			current.compact();
+
+			this.scan -= from;
+			this.start = this.start < 0 ? -1 : 0;
+		}
+	}
+
+	private void grow() throws IOException {
+		int size = this.buffer.capacity() * 2;
+
+		if (size > MAX_SIZE) {
+			throw new IOException("Json-rpc message larger than " + MAX_SIZE + " bytes");
+		}
+
+		ByteBuffer grown = ByteBuffer.allocate(size);
+		this.buffer.flip();
+		grown.put(this.buffer);
+		this.buffer = grown;
+	}
+}
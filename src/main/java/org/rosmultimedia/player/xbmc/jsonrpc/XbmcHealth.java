@@ -0,0 +1,256 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.jsonrpc;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Health of xbmc server.
+ *
+ * <ul>
+ * <li>UP : last request succeeded.</li>
+ * <li>DEGRADED : some requests failed, requests are still sent.</li>
+ * <li>DOWN : requests fail fast, a single probe is allowed after a backoff
+ * growing exponentially, with jitter.</li>
+ * <li>WAKING : server was asked to wake up (or said so), probes are allowed
+ * at minimal backoff for a while.</li>
+ * </ul>
+ * Any successful request promotes the server to UP.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcHealth {
+	public enum State {
+		UP,
+		DEGRADED,
+		DOWN,
+		WAKING
+	}
+
+	/**
+	 * Listener of health changes.
+	 */
+	public interface Listener {
+		void onStateChanged(State previous, State state);
+	}
+
+	/**
+	 * Consecutive failures before server is considered down.
+	 */
+	private static final int DOWN_THRESHOLD = 3;
+
+	/**
+	 * Duration of the waking state.
+	 */
+	private static final long WAKE_DURATION = 60000;
+
+	private final long minBackoff;
+	private final long maxBackoff;
+	private final Random random = new Random();
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	private State state = State.DOWN;
+	private int failures;
+	private long backoff;
+	private long nextProbe;
+	private long wakeEnd;
+
+	/**
+	 * True while the single probe allowed in down state is running.
+	 */
+	private boolean probing;
+
+	public XbmcHealth() {
+		this(1000, 60000);
+	}
+
+	/**
+	 * @param minBackoff First delay between probes, in ms
+	 * @param maxBackoff Maximum delay between probes, in ms
+	 */
+	public XbmcHealth(long minBackoff, long maxBackoff) {
+		this.minBackoff = minBackoff;
+		this.maxBackoff = maxBackoff;
+		this.backoff = minBackoff;
+	}
+
+	public void addListener(Listener listener) {
+		this.listeners.add(listener);
+	}
+
+	public synchronized State getState() {
+		return this.state;
+	}
+
+	/**
+	 * @return true if server is up or degraded
+	 */
+	public synchronized boolean isAvailable() {
+		return this.state == State.UP || this.state == State.DEGRADED;
+	}
+
+	/**
+	 * Check if a request can be sent. When down, only one probe is allowed
+	 * once the backoff is elapsed.
+	 * @return false if request must fail fast
+	 */
+	public synchronized boolean allowRequest() {
+		boolean result = this.isAvailable();
+
+		if (!result && !this.probing && System.currentTimeMillis() >= this.nextProbe) {
+			this.probing = true;
+			result = true;
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return Delay before next probe in ms, 0 if requests are allowed
+	 */
+	public synchronized long getProbeDelay() {
+		long result = 0;
+
+		if (!this.isAvailable()) {
+			result = this.probing
+					? this.minBackoff
+					: Math.max(0, this.nextProbe - System.currentTimeMillis());
+		}
+
+		return result;
+	}
+
+	/**
+	 * A request reached the server.
+	 */
+	public void onSuccess() {
+		State previous;
+
+		synchronized (this) {
+			previous = this.state;
+			this.state = State.UP;
+			this.failures = 0;
+			this.backoff = this.minBackoff;
+			this.probing = false;
+		}
+
+		this.fireStateChanged(previous, State.UP);
+	}
+
+	/**
+	 * A request did not reach the server (connection refused, timeout...).
+	 */
+	public void onFailure() {
+		State previous;
+		State current;
+
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			previous = this.state;
+			this.failures++;
+			this.probing = false;
+
+			if (this.state == State.WAKING && now < this.wakeEnd) {
+				this.nextProbe = now + this.minBackoff;
+			} else if (this.state == State.UP && this.failures < DOWN_THRESHOLD) {
+				this.state = State.DEGRADED;
+			} else if (this.failures >= DOWN_THRESHOLD || !this.isAvailable()) {
+				this.state = State.DOWN;
+				this.scheduleProbe(now);
+			}
+
+			current = this.state;
+		}
+
+		this.fireStateChanged(previous, current);
+	}
+
+	/**
+	 * A request allowed by {@link #allowRequest()} ended. A probe ended
+	 * without success or failure (runtime error) is over, the next one is
+	 * allowed after the backoff.
+	 */
+	public synchronized void onRequestEnd() {
+		if (this.probing) {
+			this.probing = false;
+			this.scheduleProbe(System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Server is going down (quit, sleep...), requests fail fast now.
+	 */
+	public void onShutdown() {
+		State previous;
+
+		synchronized (this) {
+			previous = this.state;
+			this.state = State.DOWN;
+			this.failures = DOWN_THRESHOLD;
+			this.backoff = this.minBackoff;
+			this.probing = false;
+			this.scheduleProbe(System.currentTimeMillis());
+		}
+
+		this.fireStateChanged(previous, State.DOWN);
+	}
+
+	/**
+	 * Server was asked to wake up, or notified it woke up : probe now.
+	 */
+	public void onWake() {
+		State previous;
+		State current;
+
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			previous = this.state;
+
+			if (!this.isAvailable()) {
+				this.state = State.WAKING;
+				this.wakeEnd = now + WAKE_DURATION;
+				this.backoff = this.minBackoff;
+				this.nextProbe = now;
+				this.probing = false;
+			}
+
+			current = this.state;
+		}
+
+		this.fireStateChanged(previous, current);
+	}
+
+	/**
+	 * Schedule next probe with equal jitter : half of the backoff plus a
+	 * random part of the other half, then double backoff.
+	 * @param now Current time
+	 */
+	private void scheduleProbe(long now) {
+		long half = this.backoff / 2;
+		this.nextProbe = now + half + (long) (this.random.nextDouble() * half);
+		this.backoff = Math.min(this.backoff * 2, this.maxBackoff);
+	}
+
+	private void fireStateChanged(State previous, State state) {
+		if (previous != state) {
+			for (Listener listener : this.listeners) {
+				listener.onStateChanged(previous, state);
+			}
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("XbmcHealth[%s, failures=%d, backoff=%dms]",
+				this.state, this.failures, this.backoff);
+	}
+}
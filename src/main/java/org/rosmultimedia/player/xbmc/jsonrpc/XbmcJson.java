@@ -8,8 +8,13 @@
  */
 package org.rosmultimedia.player.xbmc.jsonrpc;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
 import org.codehaus.jackson.node.ObjectNode;
 import org.xbmc.android.jsonrpc.api.AbstractCall;
 import org.xbmc.android.jsonrpc.io.ApiException;
@@ -22,6 +27,8 @@ import org.xbmc.android.jsonrpc.io.JsonApiRequest;
  *
  */
 public class XbmcJson {
+	private static final ObjectMapper OM = new ObjectMapper();
+
 	/**
 	 * Url of xbmc server.
 	 */
@@ -34,6 +41,14 @@ public class XbmcJson {
 	 * Password of xbmc server.
 	 */
 	private String password;
+	/**
+	 * Health of xbmc server.
+	 */
+	private XbmcHealth health;
+	/**
+	 * TCP connection of xbmc server for calls, null for http only.
+	 */
+	private XbmcNotifications tcp;
 
 	/**
 	 *
@@ -42,9 +57,37 @@ public class XbmcJson {
 	 * @param password Password of xbmc server.
 	 */
 	public XbmcJson(String url, String user, String password) {
+		this(url, user, password, new XbmcHealth());
+	}
+
+	/**
+	 *
+	 * @param url Url of xbmc server.
+	 * @param user User of xbmc server.
+	 * @param password Password of xbmc server.
+	 * @param health Health of xbmc server.
+	 */
+	public XbmcJson(String url, String user, String password, XbmcHealth health) {
 		this.url = url;
 		this.user = user;
 		this.password = password;
+		this.health = health;
+	}
+
+	/**
+	 * @return Health of xbmc server.
+	 */
+	public XbmcHealth getHealth() {
+		return this.health;
+	}
+
+	/**
+	 * Send calls on the TCP connection of xbmc server while connected, http
+	 * is used when the connection is down.
+	 * @param tcp TCP connection of xbmc server, null for http only
+	 */
+	public void setTcp(XbmcNotifications tcp) {
+		this.tcp = tcp;
 	}
 
 	/**
@@ -76,10 +119,121 @@ public class XbmcJson {
 	}
 
 	/**
-	 * Execute call to xbmc server.
+	 * Call xbmc json-rpc with several calls in a single batch request.
+	 * Results are set on each call, failed calls keep a null result.
+	 * @param callers Calls of the batch
+	 * @return Number of calls with a result
+	 */
+	public int executeBatch(List<? extends AbstractCall<?>> callers) {
+		int result = 0;
+
+		for (AbstractCall<?> caller : callers) {
+			// Calls may be sent again, drop result of previous request.
+			caller.clearResponse();
+		}
+
+		if (callers.isEmpty() || !this.health.allowRequest()) {
+			return result;
+		}
+
+		try {
+			result = this.sendBatch(callers);
+		} finally {
+			this.health.onRequestEnd();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Send calls of a batch, on TCP connection or http.
+	 * @param callers Calls of the batch
+	 * @return Number of calls with a result
+	 */
+	private int sendBatch(List<? extends AbstractCall<?>> callers) {
+		int result = 0;
+
+		Map<String, ObjectNode> tcpResponses = this.executeTcp(callers);
+		if (tcpResponses != null) {
+			for (AbstractCall<?> caller : callers) {
+				ObjectNode response = tcpResponses.get(caller.getId());
+
+				if (isResult(response)) {
+					caller.setResponse(response);
+					result++;
+				}
+			}
+
+			return result;
+		}
+
+		ArrayNode entities = OM.createArrayNode();
+		for (AbstractCall<?> caller : callers) {
+			entities.add(caller.getRequest());
+		}
+
+		try {
+			Map<String, ObjectNode> responses = JsonApiRequest.executeBatch(
+					this.url,
+					this.user,
+					this.password,
+					entities);
+
+			this.health.onSuccess();
+
+			for (AbstractCall<?> caller : callers) {
+				ObjectNode response = responses.get(caller.getId());
+
+				if (response != null) {
+					caller.setResponse(response);
+					result++;
+				}
+			}
+		} catch (ApiException e) {
+			if (isTransportError(e)) {
+				this.health.onFailure();
+			} else {
+				this.health.onSuccess();
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Execute call to xbmc server. Fails fast (no result) while server is down.
 	 * @param caller
 	 */
 	private void executeCall(AbstractCall<?> caller) {
+		caller.clearResponse();
+
+		if (!this.health.allowRequest()) {
+			return;
+		}
+
+		try {
+			this.sendCall(caller);
+		} finally {
+			this.health.onRequestEnd();
+		}
+	}
+
+	/**
+	 * Send a call, on TCP connection or http.
+	 * @param caller
+	 */
+	private void sendCall(AbstractCall<?> caller) {
+		Map<String, ObjectNode> tcpResponses = this.executeTcp(Collections.singletonList(caller));
+		if (tcpResponses != null) {
+			ObjectNode response = tcpResponses.get(caller.getId());
+
+			if (isResult(response)) {
+				caller.setResponse(response);
+			}
+
+			return;
+		}
+
 		try {
 			ObjectNode object = JsonApiRequest.execute(
 					this.url,
@@ -87,9 +241,61 @@ public class XbmcJson {
 					this.password,
 					caller.getRequest());
 
+			this.health.onSuccess();
 			caller.setResponse(object);
 		} catch (ApiException e) {
+			if (isTransportError(e)) {
+				this.health.onFailure();
+			} else {
+				// Server answered, with an error.
+				this.health.onSuccess();
+			}
+		}
+	}
+
+	/**
+	 * Send calls on the TCP connection. Calls are not sent again on http
+	 * when some responses are missing : they may have been run by xbmc.
+	 * @param callers Calls to send
+	 * @return Responses by id, null if calls were not sent (use http)
+	 */
+	private Map<String, ObjectNode> executeTcp(List<? extends AbstractCall<?>> callers) {
+		XbmcNotifications current = this.tcp;
+		Map<String, ObjectNode> result = null;
+
+		if (current != null) {
+			List<ObjectNode> requests = new ArrayList<ObjectNode>(callers.size());
+			for (AbstractCall<?> caller : callers) {
+				requests.add(caller.getRequest());
+			}
+
+			result = current.execute(requests);
 
+			// Calls without response timed out, or connection was lost.
+			if (result != null && result.size() == requests.size()) {
+				this.health.onSuccess();
+			} else if (result != null) {
+				this.health.onFailure();
+			}
 		}
+
+		return result;
+	}
+
+	/**
+	 * @param response Response of a call, may be null
+	 * @return true if the response has a result
+	 */
+	private static boolean isResult(ObjectNode response) {
+		return response != null && response.has("result") && !response.get("result").isNull();
+	}
+
+	/**
+	 * @param e Error of a call
+	 * @return true if server was not reached
+	 */
+	private static boolean isTransportError(ApiException e) {
+		return e.getCode() >= ApiException.IO_EXCEPTION
+				&& e.getCode() <= ApiException.IO_DISCONNECTED;
 	}
 }
@@ -0,0 +1,299 @@
+/**
+ * This file is part of the Alfred package.
+ *
+ * (c) Mickael Gaillard <mick.gaillard@gmail.com>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+package org.rosmultimedia.player.xbmc.jsonrpc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+import org.xbmc.android.jsonrpc.notification.AbstractEvent;
+
+/**
+ * Xbmc json-rpc notifications, read from the TCP interface of xbmc.
+ *
+ * The connection is kept open by a daemon thread and reopened with an
+ * exponential backoff. Calls may be sent on the same connection : requests
+ * are written as they come, and responses are matched to their request by
+ * id while notifications are dispatched to listeners.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ *
+ */
+public class XbmcNotifications implements Runnable {
+	/**
+	 * Listener of xbmc notifications.
+	 */
+	public interface Listener {
+		void onNotification(AbstractEvent event);
+	}
+
+	private static final int CONNECT_TIMEOUT = 5000;
+	private static final long MIN_RETRY = 1000;
+	private static final long MAX_RETRY = 60000;
+	private static final ObjectMapper OM = new ObjectMapper();
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Maximum wait of the responses of sent calls, in ms.
+	 */
+	private static final long CALL_TIMEOUT = 10000;
+
+	/**
+	 * Call waiting for its response.
+	 */
+	private static final class Pending {
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private volatile ObjectNode response;
+	}
+
+	private final String host;
+	private final int port;
+	private final XbmcHealth health;
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	private volatile boolean running;
+	private volatile Socket socket;
+	private Thread thread;
+
+	private final ConcurrentMap<String, Pending> pending = new ConcurrentHashMap<String, Pending>();
+	private final Object writeLock = new Object();
+
+	/**
+	 * @param host Host of xbmc server
+	 * @param port TCP port of xbmc json-rpc (9090 by default)
+	 * @param health Health of xbmc server
+	 */
+	public XbmcNotifications(String host, int port, XbmcHealth health) {
+		this.host = host;
+		this.port = port;
+		this.health = health;
+	}
+
+	public void addListener(Listener listener) {
+		this.listeners.add(listener);
+	}
+
+	public synchronized void start() {
+		if (this.thread == null) {
+			this.running = true;
+			this.thread = new Thread(this, "xbmc-notifications");
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+	}
+
+	public synchronized void stop() {
+		this.running = false;
+		this.close();
+
+		if (this.thread != null) {
+			this.thread.interrupt();
+			this.thread = null;
+		}
+	}
+
+	/**
+	 * @return true while notifications are received from xbmc
+	 */
+	public boolean isConnected() {
+		Socket current = this.socket;
+		return this.running && current != null && current.isConnected() && !current.isClosed();
+	}
+
+	/**
+	 * Send calls on the connection, and wait for their responses.
+	 * @param requests Requests of the calls, with distinct ids
+	 * @return Responses received (results or errors) by id, null if the
+	 * requests were not sent (connection down or lost while writing). When
+	 * responses are missing after the timeout, the connection is closed :
+	 * next calls use http until it is open again.
+	 */
+	public Map<String, ObjectNode> execute(List<ObjectNode> requests) {
+		Socket current = this.socket;
+
+		// Reader thread can not wait for responses it reads (listener calls).
+		if (!this.isConnected() || current == null || Thread.currentThread() == this.thread) {
+			return null;
+		}
+
+		Map<String, Pending> calls = new HashMap<String, Pending>(requests.size());
+
+		for (ObjectNode request : requests) {
+			Pending call = new Pending();
+			String id = request.get("id").getValueAsText();
+
+			calls.put(id, call);
+			this.pending.put(id, call);
+		}
+
+		try {
+			synchronized (this.writeLock) {
+				OutputStream output = current.getOutputStream();
+
+				for (ObjectNode request : requests) {
+					output.write(request.toString().getBytes(UTF8));
+				}
+
+				output.flush();
+			}
+		} catch (IOException e) {
+			this.pending.keySet().removeAll(calls.keySet());
+			this.close();
+			return null;
+		}
+
+		Map<String, ObjectNode> result = new HashMap<String, ObjectNode>(calls.size());
+		long deadline = System.currentTimeMillis() + CALL_TIMEOUT;
+
+		try {
+			for (Map.Entry<String, Pending> call : calls.entrySet()) {
+				long wait = deadline - System.currentTimeMillis();
+
+				if (wait > 0 && call.getValue().latch.await(wait, TimeUnit.MILLISECONDS)
+						&& call.getValue().response != null) {
+					result.put(call.getKey(), call.getValue().response);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// Sent calls are not sent again : late responses are dropped.
+			this.pending.keySet().removeAll(calls.keySet());
+		}
+
+		if (result.size() < calls.size() && current == this.socket
+				&& !Thread.currentThread().isInterrupted()) {
+			// Xbmc is hung or the connection is lost.
+			this.close();
+		}
+
+		return result;
+	}
+
+	@Override
+	public void run() {
+		long retry = MIN_RETRY;
+
+		while (this.running) {
+			try {
+				this.socket = new Socket();
+				this.socket.connect(new InetSocketAddress(this.host, this.port), CONNECT_TIMEOUT);
+				this.health.onSuccess();
+				retry = MIN_RETRY;
+
+				this.read();
+			} catch (IOException e) {
+				// Server unreachable or connection lost, retry later.
+			} finally {
+				this.close();
+			}
+
+			try {
+				Thread.sleep(Math.max(retry, this.health.getProbeDelay()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+
+			retry = Math.min(retry * 2, MAX_RETRY);
+		}
+	}
+
+	private void read() throws IOException {
+		InputStream input = this.socket.getInputStream();
+		XbmcFrameDecoder decoder = new XbmcFrameDecoder();
+		XbmcFrameDecoder.Handler handler = new XbmcFrameDecoder.Handler() {
+			@Override
+			public void onFrame(byte[] buffer, int offset, int length) {
+				try {
+					// Parsed in place, without copy of the message.
+					XbmcNotifications.this.dispatch(OM.readValue(buffer, offset, length, JsonNode.class));
+				} catch (IOException e) {
+					// Malformed message, next message starts after it.
+				}
+			}
+		};
+
+		while (this.running) {
+			ByteBuffer buffer = decoder.buffer();
+			int count = input.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+
+			if (count < 0) {
+				break;
+			}
+
+			decoder.decode(count, handler);
+		}
+	}
+
+	/**
+	 * Hand over a message to the waiting call, or to listeners.
+	 * @param node Message
+	 */
+	private void dispatch(JsonNode node) {
+		if (node.isObject() && node.has("id") && !node.get("id").isNull()) {
+			// Response of a call.
+			Pending call = this.pending.remove(node.get("id").getValueAsText());
+
+			if (call != null) {
+				call.response = (ObjectNode) node;
+				call.latch.countDown();
+			}
+		} else if (node.isObject() && node.has("method")) {
+			// Notifications have a method and no id.
+			try {
+				AbstractEvent event = AbstractEvent.parse((ObjectNode) node);
+
+				if (event != null) {
+					for (Listener listener : this.listeners) {
+						listener.onNotification(event);
+					}
+				}
+			} catch (RuntimeException e) {
+				// Malformed notification or listener error, keep reading.
+			}
+		}
+	}
+
+	private void close() {
+		Socket current = this.socket;
+
+		// Calls waiting on this connection have no response.
+		for (String id : this.pending.keySet()) {
+			Pending call = this.pending.remove(id);
+
+			if (call != null) {
+				call.latch.countDown();
+			}
+		}
+
+		if (current != null) {
+			try {
+				current.close();
+			} catch (IOException e) {
+				// Already closed.
+			}
+		}
+	}
+}
@@ -126,9 +126,9 @@ public abstract class AbstractCall<T> implements Parcelable {
 	protected ArrayList<T> mResults = null;
 	
 	/**
-	 * The ID of the request.
+	 * The ID of the request, renewed by {@link #clearResponse()}.
 	 */
-	private final String mId;
+	private String mId;
 	
 	/**
 	 * Creates the standard structure of the JSON request.
@@ -166,6 +166,18 @@ public abstract class AbstractCall<T> implements Parcelable {
 		}
 	}
 	
+	/**
+	 * Clears the result of a previous response, so that the call can be
+	 * sent again. The ID is renewed : a late response to the previous
+	 * request does not match the new one.
+	 */
+	public void clearResponse() {
+		mResult = null;
+		mResults = null;
+		mId = String.valueOf(RND.nextLong());
+		mRequest.put("id", mId);
+	}
+	
 	@SuppressWarnings("unchecked")
 	public void copyResponse(AbstractCall<?> call) {
 		if (returnsList()) {
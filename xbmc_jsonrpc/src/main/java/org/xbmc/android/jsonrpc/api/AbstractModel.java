@@ -22,7 +22,9 @@
 package org.xbmc.android.jsonrpc.api;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 
 import org.codehaus.jackson.JsonNode;
@@ -39,8 +41,48 @@ public abstract class AbstractModel implements JsonSerializable, Parcelable {
 	 */
 	protected final static ObjectMapper OM = new ObjectMapper();
 
+	/**
+	 * Keys of low-cardinality values deduplicated through {@link #sPool}.
+	 */
+	private final static HashSet<String> POOLED_KEYS = new HashSet<String>(Arrays.asList(
+			"genre", "studio", "country", "mpaa", "artist", "albumartist",
+			"displayartist", "type", "mood", "style", "theme", "tag", "set",
+			"showtitle", "album", "director", "writer", "codec", "language"));
+
+	/**
+	 * Pool used while decoding, null disables deduplication.
+	 */
+	private static volatile StringPool sPool = new StringPool();
+
 	protected String mType;
 
+	/**
+	 * Returns the pool deduplicating low-cardinality values while decoding.
+	 * @return Current pool, null if disabled
+	 */
+	public static StringPool getStringPool() {
+		return sPool;
+	}
+
+	/**
+	 * Sets the pool deduplicating low-cardinality values while decoding.
+	 * @param pool New pool, null to disable deduplication
+	 */
+	public static void setStringPool(StringPool pool) {
+		sPool = pool;
+	}
+
+	/**
+	 * Returns the pooled instance of value if key holds low-cardinality values.
+	 */
+	private static String pooled(String key, String value) {
+		final StringPool pool = sPool;
+		if (pool != null && value != null && POOLED_KEYS.contains(key)) {
+			return pool.intern(value);
+		}
+		return value;
+	}
+
 	/**
 	 * Tries to read an integer from JSON object.
 	 *
@@ -60,7 +102,7 @@ public abstract class AbstractModel implements JsonSerializable, Parcelable {
 	 * @return String value if found, null otherwise.
 	 */
 	public static String parseString(JsonNode node, String key) {
-		return node.has(key) ? node.get(key).getTextValue() : null;
+		return node.has(key) ? pooled(key, node.get(key).getTextValue()) : null;
 	}
 
 	/**
@@ -88,7 +130,7 @@ public abstract class AbstractModel implements JsonSerializable, Parcelable {
 			final ArrayNode a = (ArrayNode)node.get(key);
 			final ArrayList<String> l = new ArrayList<String>(a.size());
 			for (int i = 0; i < a.size(); i++) {
-				l.add(a.get(i).getTextValue());
+				l.add(pooled(key, a.get(i).getTextValue()));
 			}
 			return l;
 		}
@@ -0,0 +1,159 @@
+/*
+ *      Copyright (C) 2005-2015 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.jsonrpc.api;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool deduplicating low-cardinality string values (genres, studios,
+ * artists...) decoded from JSON-RPC responses.
+ * <p/>
+ * Once the pool is full, new values are returned as-is and not retained, so
+ * a high-cardinality field can not grow the pool without limit.
+ *
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ */
+public class StringPool {
+
+	/**
+	 * Default number of distinct values retained.
+	 */
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	/**
+	 * Longer values are not pooled (plots, lyrics...).
+	 */
+	public static final int MAX_LENGTH = 64;
+
+	/**
+	 * Estimated size of a String instance and its char array, without chars.
+	 */
+	private static final int STRING_OVERHEAD = 56;
+
+	private final int capacity;
+	private final ConcurrentHashMap<String, String> values;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong savedBytes = new AtomicLong();
+
+	public StringPool() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity Maximum number of distinct values retained
+	 */
+	public StringPool(int capacity) {
+		this.capacity = capacity;
+		this.values = new ConcurrentHashMap<String, String>(Math.min(capacity, 1024));
+	}
+
+	/**
+	 * Returns the pooled instance equal to value.
+	 *
+	 * @param value Decoded value
+	 * @return Pooled instance, or value itself if not pooled
+	 */
+	public String intern(String value) {
+		if (value == null || value.length() > MAX_LENGTH) {
+			return value;
+		}
+
+		final String pooled = values.get(value);
+		if (pooled != null) {
+			hits.incrementAndGet();
+			savedBytes.addAndGet(STRING_OVERHEAD + 2L * value.length());
+			return pooled;
+		}
+
+		misses.incrementAndGet();
+		if (values.size() < capacity) {
+			final String previous = values.putIfAbsent(value, value);
+			if (previous != null) {
+				return previous;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * @return Number of decoded values replaced by a pooled instance
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return Number of decoded values not found in pool
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return Ratio of hits on all lookups, between 0 and 1
+	 */
+	public double getHitRate() {
+		final long h = hits.get();
+		final long total = h + misses.get();
+		return total == 0 ? 0 : (double)h / total;
+	}
+
+	/**
+	 * Estimated heap released by deduplication. Counts every hit, so it is
+	 * an upper bound when decoded objects are short-lived.
+	 *
+	 * @return Bytes saved
+	 */
+	public long getSavedBytes() {
+		return savedBytes.get();
+	}
+
+	/**
+	 * @return Number of distinct values retained
+	 */
+	public int size() {
+		return values.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Drops all values and resets statistics.
+	 */
+	public void clear() {
+		values.clear();
+		hits.set(0);
+		misses.set(0);
+		savedBytes.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("StringPool[size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, saved=%dkB]",
+				size(), capacity, getHits(), getMisses(), getHitRate() * 100, getSavedBytes() / 1024);
+	}
+}
@@ -465,7 +465,10 @@ public final class Files {
 			 * @param node JSON object representing a PrepareDownloadResult object
 			 */
 			public PrepareDownloadResult(JsonNode node) {
-				details = node.get(DETAILS).getTextValue(); // required value
+				// required value, an object holding the download path on recent versions
+				final JsonNode detailsNode = node.get(DETAILS);
+				details = detailsNode.isTextual() ? detailsNode.getTextValue()
+						: detailsNode.has("path") ? detailsNode.get("path").getTextValue() : detailsNode.toString();
 				mode = parseString(node, MODE);
 				protocol = parseString(node, PROTOCOL);
 			}
@@ -3336,7 +3336,7 @@ public final class ListModel {
 			node.put(TVSHOWID, tvshowid);
 			node.put(TYPE, type); // enum
 			final ObjectNode uniqueidMap = OM.createObjectNode();
-			for (String key : uniqueid.values()) {
+			for (String key : uniqueid.keySet()) {
 				uniqueidMap.put(key, uniqueid.get(key));
 			}
 			node.put(UNIQUEID, uniqueidMap);
@@ -3484,7 +3484,7 @@ public final class ListModel {
 			parcel.writeValue(tvshowid);
 			parcel.writeValue(type); // enum
 			parcel.writeInt(uniqueid.size());
-			for (String key : uniqueid.values()) {
+			for (String key : uniqueid.keySet()) {
 				parcel.writeValue(key);
 				parcel.writeValue(uniqueid.get(key));
 			}
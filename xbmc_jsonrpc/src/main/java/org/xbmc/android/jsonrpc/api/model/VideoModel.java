@@ -312,7 +312,7 @@ public final class VideoModel {
 			node.put(SHOWTITLE, showtitle);
 			node.put(TVSHOWID, tvshowid);
 			final ObjectNode uniqueidMap = OM.createObjectNode();
-			for (String key : uniqueid.values()) {
+			for (String key : uniqueid.keySet()) {
 				uniqueidMap.put(key, uniqueid.get(key));
 			}
 			node.put(UNIQUEID, uniqueidMap);
@@ -364,7 +364,7 @@ public final class VideoModel {
 			parcel.writeValue(showtitle);
 			parcel.writeValue(tvshowid);
 			parcel.writeInt(uniqueid.size());
-			for (String key : uniqueid.values()) {
+			for (String key : uniqueid.keySet()) {
 				parcel.writeValue(key);
 				parcel.writeValue(uniqueid.get(key));
 			}
@@ -30,9 +30,13 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.JsonProcessingException;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
 import org.codehaus.jackson.node.ObjectNode;
 import org.codehaus.jackson.node.TextNode;
 
@@ -72,6 +76,27 @@ public class JsonApiRequest {
 		}
 	}
 
+	/**
+	 * Executes a JSON-RPC batch in a single POST request and returns the
+	 * successful responses by request id.
+	 *
+	 * Failed calls of the batch are logged and missing from the result, only
+	 * a failure of the whole request throws.
+	 *
+	 * @param url Complete URL with schema, host, port if not default and path.
+	 * @param entities Array of JSON-RPC requests
+	 * @return Responses with a non null result, by request id.
+	 * @throws ApiException
+	 */
+	public static Map<String, ObjectNode> executeBatch(String url, String user, String pass, ArrayNode entities) throws ApiException {
+		try {
+			String response = postRequest(new URL(url), user, pass, entities.toString());
+			return parseBatchResponse(response);
+		} catch (MalformedURLException e) {
+			throw new ApiException(ApiException.MALFORMED_URL, e.getMessage(), e);
+		}
+	}
+
 	/**
 	 * Execute a POST request on URL using entity as request body.
 	 *
@@ -213,6 +238,44 @@ public class JsonApiRequest {
 		}
 	}
 
+	/**
+	 * Parses the JSON response of a batch, an array of responses.
+	 *
+	 * @param response
+	 * @return Responses with a non null result, by request id.
+	 * @throws ApiException
+	 */
+	private static Map<String, ObjectNode> parseBatchResponse(String response) throws ApiException {
+		try {
+			final JsonNode root = OM.readTree(response);
+			final Map<String, ObjectNode> result = new HashMap<String, ObjectNode>();
+
+			if (!root.isArray()) {
+				// Whole batch rejected, with a single error.
+				parseResponse(response);
+				return result;
+			}
+
+			for (JsonNode node : root) {
+				if (!node.isObject() || !node.has("id")) {
+					continue;
+				}
+
+				if (node.has("error")) {
+					Log.e(TAG, "[JSON-RPC] " + node);
+				} else if (node.has("result") && !node.get("result").isNull()) {
+					result.put(node.get("id").getValueAsText(), (ObjectNode) node);
+				}
+			}
+
+			return result;
+		} catch (JsonProcessingException e) {
+			throw new ApiException(ApiException.JSON_EXCEPTION, "Parse error: " + e.getMessage(), e);
+		} catch (IOException e) {
+			throw new ApiException(ApiException.JSON_EXCEPTION, "Parse error: " + e.getMessage(), e);
+		}
+	}
+
 	/**
 	 * Build user agent used for the HTTP requests
 	 *
@@ -21,6 +21,9 @@
 
 package org.xbmc.android.jsonrpc.notification;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.codehaus.jackson.node.ObjectNode;
 
 import android.os.Parcel;
@@ -44,35 +47,197 @@ public abstract class AbstractEvent implements Parcelable {
 	
 	public abstract int getId();
 	
+	/**
+	 * Decoder of a notification, from its params.
+	 */
+	private interface Decoder {
+		AbstractEvent decode(ObjectNode params);
+	}
+	
+	/**
+	 * Decoders by notification method.
+	 */
+	private static final Map<String, Decoder> DECODERS = new HashMap<String, Decoder>();
+	
+	static {
+		DECODERS.put(PlayerEvent.Play.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new PlayerEvent.Play(params);
+			}
+		});
+		DECODERS.put(PlayerEvent.Pause.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new PlayerEvent.Pause(params);
+			}
+		});
+		DECODERS.put(PlayerEvent.Stop.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new PlayerEvent.Stop(params);
+			}
+		});
+		DECODERS.put(PlayerEvent.SpeedChanged.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new PlayerEvent.SpeedChanged(params);
+			}
+		});
+		DECODERS.put(PlayerEvent.Seek.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new PlayerEvent.Seek(params);
+			}
+		});
+		DECODERS.put(SystemEvent.Quit.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new SystemEvent.Quit(params);
+			}
+		});
+		DECODERS.put(SystemEvent.Restart.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new SystemEvent.Restart(params);
+			}
+		});
+		DECODERS.put(SystemEvent.Wake.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new SystemEvent.Wake(params);
+			}
+		});
+		DECODERS.put(SystemEvent.Sleep.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new SystemEvent.Sleep(params);
+			}
+		});
+		DECODERS.put(SystemEvent.LowBattery.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new SystemEvent.LowBattery(params);
+			}
+		});
+		DECODERS.put(LibraryEvent.Update.VIDEO_METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new LibraryEvent.Update(params, false);
+			}
+		});
+		DECODERS.put(LibraryEvent.Update.AUDIO_METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new LibraryEvent.Update(params, true);
+			}
+		});
+		DECODERS.put(LibraryEvent.Remove.VIDEO_METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new LibraryEvent.Remove(params, false);
+			}
+		});
+		DECODERS.put(LibraryEvent.Remove.AUDIO_METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new LibraryEvent.Remove(params, true);
+			}
+		});
+		DECODERS.put(LibraryEvent.ScanFinished.VIDEO_METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new LibraryEvent.ScanFinished(params, false);
+			}
+		});
+		DECODERS.put(LibraryEvent.ScanFinished.AUDIO_METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new LibraryEvent.ScanFinished(params, true);
+			}
+		});
+		DECODERS.put(LibraryEvent.CleanFinished.VIDEO_METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new LibraryEvent.CleanFinished(params, false);
+			}
+		});
+		DECODERS.put(LibraryEvent.CleanFinished.AUDIO_METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new LibraryEvent.CleanFinished(params, true);
+			}
+		});
+		DECODERS.put(ApplicationEvent.VolumeChanged.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new ApplicationEvent.VolumeChanged(params);
+			}
+		});
+		DECODERS.put(GUIEvent.Screensaver.ACTIVATED_METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new GUIEvent.Screensaver(params, true);
+			}
+		});
+		DECODERS.put(GUIEvent.Screensaver.DEACTIVATED_METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new GUIEvent.Screensaver(params, false);
+			}
+		});
+		DECODERS.put(GUIEvent.Dpms.ACTIVATED_METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new GUIEvent.Dpms(params, true);
+			}
+		});
+		DECODERS.put(GUIEvent.Dpms.DEACTIVATED_METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new GUIEvent.Dpms(params, false);
+			}
+		});
+		DECODERS.put(PlaylistEvent.Add.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new PlaylistEvent.Add(params);
+			}
+		});
+		DECODERS.put(PlaylistEvent.Remove.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new PlaylistEvent.Remove(params);
+			}
+		});
+		DECODERS.put(PlaylistEvent.Clear.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new PlaylistEvent.Clear(params);
+			}
+		});
+		DECODERS.put(InputEvent.InputRequested.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new InputEvent.InputRequested(params);
+			}
+		});
+		DECODERS.put(InputEvent.InputFinished.METHOD, new Decoder() {
+			@Override
+			public AbstractEvent decode(ObjectNode params) {
+				return new InputEvent.InputFinished(params);
+			}
+		});
+	}
+	
 	/**
 	 * Parses the notification type and returns an instance.
 	 * @param node Original notification, as read from API.
-	 * @return
+	 * @return Notification, null if the method is unknown
 	 */
 	public static AbstractEvent parse(ObjectNode node) {
-		final String method = node.get("method").getTextValue();
-		final ObjectNode params = (ObjectNode)node.get("params");
-		if (method.equals(PlayerEvent.Play.METHOD)) {
-			return new PlayerEvent.Play(params);
-		} else if (method.equals(PlayerEvent.Pause.METHOD)) {
-			return new PlayerEvent.Pause(params);
-		} else if (method.equals(PlayerEvent.Stop.METHOD)) {
-			return new PlayerEvent.Stop(params);
-		} else if (method.equals(PlayerEvent.SpeedChanged.METHOD)) {
-			return new PlayerEvent.SpeedChanged(params);
-		} else if (method.equals(PlayerEvent.Seek.METHOD)) {
-			return new PlayerEvent.Seek(params);
-		} else if (method.equals(SystemEvent.Quit.METHOD)) {
-			return new SystemEvent.Quit(params);
-		} else if (method.equals(SystemEvent.Restart.METHOD)) {
-			return new SystemEvent.Restart(params);
-		} else if (method.equals(SystemEvent.Wake.METHOD)) {
-			return new SystemEvent.Wake(params);
-		} else if (method.equals(SystemEvent.LowBattery.METHOD)) {
-			return new SystemEvent.LowBattery(params);
-		} else{
-			return null;
-		}
+		final Decoder decoder = DECODERS.get(node.path("method").getTextValue());
+		return decoder == null ? null : decoder.decode((ObjectNode)node.get("params"));
 	}
 
 	public static int parseInt(ObjectNode node, String key) {
@@ -83,6 +248,27 @@ public abstract class AbstractEvent implements Parcelable {
 		return node.has(key) ? node.get(key).getTextValue() : null;
 	}
 	
+	public static boolean parseBoolean(ObjectNode node, String key) {
+		return node.has(key) && node.get(key).getBooleanValue();
+	}
+	
+	/**
+	 * @param node Object of a notification
+	 * @param key Key of a child object
+	 * @return Child object, empty if missing or not an object
+	 */
+	public static ObjectNode parseObject(ObjectNode node, String key) {
+		return node.has(key) && node.get(key).isObject() ? (ObjectNode)node.get(key) : node.objectNode();
+	}
+	
+	/**
+	 * @param params Params of a notification
+	 * @return Data of the notification, empty if missing (null data)
+	 */
+	public static ObjectNode parseData(ObjectNode params) {
+		return parseObject(params, "data");
+	}
+	
 	@Override
 	public void writeToParcel(Parcel parcel, int flags) {
 		parcel.writeString(sender);
@@ -0,0 +1,88 @@
+/*
+ *      Copyright (C) 2005-2015 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.jsonrpc.notification;
+
+import org.codehaus.jackson.node.ObjectNode;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Parses Application.* events.
+ * 
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ */
+public class ApplicationEvent {
+	
+	/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+	 *  notifications: https://github.com/xbmc/xbmc/blob/master/xbmc/interfaces/json-rpc/notifications.json
+	 * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+	/**
+	 * The volume of the application has changed.
+	 */
+	public static class VolumeChanged extends AbstractEvent {
+		public final static int ID = 0x31;
+		public final static String METHOD = "Application.OnVolumeChanged";
+		public final int volume;
+		public final boolean muted;
+		public VolumeChanged(ObjectNode node) {
+			super(node);
+			final ObjectNode data = AbstractEvent.parseData(node);
+			volume = AbstractEvent.parseInt(data, "volume");
+			muted = AbstractEvent.parseBoolean(data, "muted");
+		}
+		protected VolumeChanged(Parcel parcel) {
+			super(parcel);
+			volume = parcel.readInt();
+			muted = parcel.readInt() == 1;
+		}
+		@Override
+		public String toString() {
+			return 	"VOLUME-CHANGE: " + volume + (muted ? " (muted)." : ".");
+		}
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+		@Override
+		public void writeToParcel(Parcel parcel, int flags) {
+			super.writeToParcel(parcel, flags);
+			parcel.writeInt(volume);
+			parcel.writeInt(muted ? 1 : 0);
+		}
+		public static final Parcelable.Creator<VolumeChanged> CREATOR = new Parcelable.Creator<VolumeChanged>() {
+			@Override
+			public VolumeChanged createFromParcel(Parcel parcel) {
+				return new VolumeChanged(parcel);
+			}
+			@Override
+			public VolumeChanged[] newArray(int n) {
+				return new VolumeChanged[n];
+			}
+		};
+		@Override
+		public int getId() {
+			return ID;
+		}
+	}
+}
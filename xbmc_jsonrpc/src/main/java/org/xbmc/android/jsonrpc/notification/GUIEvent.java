@@ -0,0 +1,129 @@
+/*
+ *      Copyright (C) 2005-2015 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.jsonrpc.notification;
+
+import org.codehaus.jackson.node.ObjectNode;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Parses GUI.* events.
+ * 
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ */
+public class GUIEvent {
+	
+	/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+	 *  notifications: https://github.com/xbmc/xbmc/blob/master/xbmc/interfaces/json-rpc/notifications.json
+	 * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+	/**
+	 * The screensaver has been activated or deactivated.
+	 */
+	public static class Screensaver extends AbstractEvent {
+		public final static int ID = 0x41;
+		public final static String ACTIVATED_METHOD = "GUI.OnScreensaverActivated";
+		public final static String DEACTIVATED_METHOD = "GUI.OnScreensaverDeactivated";
+		public final boolean active;
+		public Screensaver(ObjectNode node, boolean active) {
+			super(node);
+			this.active = active;
+		}
+		protected Screensaver(Parcel parcel) {
+			super(parcel);
+			active = parcel.readInt() == 1;
+		}
+		@Override
+		public String toString() {
+			return 	"SCREENSAVER: " + (active ? "activated." : "deactivated.");
+		}
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+		@Override
+		public void writeToParcel(Parcel parcel, int flags) {
+			super.writeToParcel(parcel, flags);
+			parcel.writeInt(active ? 1 : 0);
+		}
+		public static final Parcelable.Creator<Screensaver> CREATOR = new Parcelable.Creator<Screensaver>() {
+			@Override
+			public Screensaver createFromParcel(Parcel parcel) {
+				return new Screensaver(parcel);
+			}
+			@Override
+			public Screensaver[] newArray(int n) {
+				return new Screensaver[n];
+			}
+		};
+		@Override
+		public int getId() {
+			return ID;
+		}
+	}
+	
+	/**
+	 * The energy saving mode (DPMS) has been activated or deactivated.
+	 */
+	public static class Dpms extends AbstractEvent {
+		public final static int ID = 0x42;
+		public final static String ACTIVATED_METHOD = "GUI.OnDPMSActivated";
+		public final static String DEACTIVATED_METHOD = "GUI.OnDPMSDeactivated";
+		public final boolean active;
+		public Dpms(ObjectNode node, boolean active) {
+			super(node);
+			this.active = active;
+		}
+		protected Dpms(Parcel parcel) {
+			super(parcel);
+			active = parcel.readInt() == 1;
+		}
+		@Override
+		public String toString() {
+			return 	"DPMS: " + (active ? "activated." : "deactivated.");
+		}
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+		@Override
+		public void writeToParcel(Parcel parcel, int flags) {
+			super.writeToParcel(parcel, flags);
+			parcel.writeInt(active ? 1 : 0);
+		}
+		public static final Parcelable.Creator<Dpms> CREATOR = new Parcelable.Creator<Dpms>() {
+			@Override
+			public Dpms createFromParcel(Parcel parcel) {
+				return new Dpms(parcel);
+			}
+			@Override
+			public Dpms[] newArray(int n) {
+				return new Dpms[n];
+			}
+		};
+		@Override
+		public int getId() {
+			return ID;
+		}
+	}
+}
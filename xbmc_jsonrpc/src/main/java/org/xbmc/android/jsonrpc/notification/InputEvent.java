@@ -0,0 +1,132 @@
+/*
+ *      Copyright (C) 2005-2015 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.jsonrpc.notification;
+
+import org.codehaus.jackson.node.ObjectNode;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Parses Input.* events.
+ * 
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ */
+public class InputEvent {
+	
+	/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+	 *  notifications: https://github.com/xbmc/xbmc/blob/master/xbmc/interfaces/json-rpc/notifications.json
+	 * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+	/**
+	 * The user is requested to provide some information (keyboard).
+	 */
+	public static class InputRequested extends AbstractEvent {
+		public final static int ID = 0x61;
+		public final static String METHOD = "Input.OnInputRequested";
+		public final String type;
+		public final String value;
+		public final String title;
+		public InputRequested(ObjectNode node) {
+			super(node);
+			final ObjectNode data = AbstractEvent.parseData(node);
+			type = AbstractEvent.parseString(data, "type");
+			value = AbstractEvent.parseString(data, "value");
+			title = AbstractEvent.parseString(data, "title");
+		}
+		protected InputRequested(Parcel parcel) {
+			super(parcel);
+			type = parcel.readString();
+			value = parcel.readString();
+			title = parcel.readString();
+		}
+		@Override
+		public String toString() {
+			return 	"INPUT-REQUESTED: " + type + " \"" + title + "\".";
+		}
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+		@Override
+		public void writeToParcel(Parcel parcel, int flags) {
+			super.writeToParcel(parcel, flags);
+			parcel.writeString(type);
+			parcel.writeString(value);
+			parcel.writeString(title);
+		}
+		public static final Parcelable.Creator<InputRequested> CREATOR = new Parcelable.Creator<InputRequested>() {
+			@Override
+			public InputRequested createFromParcel(Parcel parcel) {
+				return new InputRequested(parcel);
+			}
+			@Override
+			public InputRequested[] newArray(int n) {
+				return new InputRequested[n];
+			}
+		};
+		@Override
+		public int getId() {
+			return ID;
+		}
+	}
+	
+	/**
+	 * The input requested by xbmc has been provided or cancelled.
+	 */
+	public static class InputFinished extends AbstractEvent {
+		public final static int ID = 0x62;
+		public final static String METHOD = "Input.OnInputFinished";
+		public InputFinished(ObjectNode node) {
+			super(node);
+		}
+		protected InputFinished(Parcel parcel) {
+			super(parcel);
+		}
+		@Override
+		public String toString() {
+			return 	"INPUT-FINISHED.";
+		}
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+		@Override
+		public void writeToParcel(Parcel parcel, int flags) {
+			super.writeToParcel(parcel, flags);
+		}
+		public static final Parcelable.Creator<InputFinished> CREATOR = new Parcelable.Creator<InputFinished>() {
+			@Override
+			public InputFinished createFromParcel(Parcel parcel) {
+				return new InputFinished(parcel);
+			}
+			@Override
+			public InputFinished[] newArray(int n) {
+				return new InputFinished[n];
+			}
+		};
+		@Override
+		public int getId() {
+			return ID;
+		}
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ *      Copyright (C) 2005-2015 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.jsonrpc.notification;
+
+import org.codehaus.jackson.node.ObjectNode;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Parses VideoLibrary.* and AudioLibrary.* events.
+ * 
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ */
+public class LibraryEvent {
+	
+	/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+	 *  notifications: https://github.com/xbmc/xbmc/blob/master/xbmc/interfaces/json-rpc/notifications.json
+	 * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+	/**
+	 * An item of the library has been updated (playcount, resume point...).
+	 */
+	public static class Update extends AbstractEvent {
+		public final static int ID = 0x21;
+		public final static String VIDEO_METHOD = "VideoLibrary.OnUpdate";
+		public final static String AUDIO_METHOD = "AudioLibrary.OnUpdate";
+		public final boolean audio;
+		public final String type;
+		public final int id;
+		public Update(ObjectNode node, boolean audio) {
+			super(node);
+			this.audio = audio;
+			final ObjectNode data = LibraryEvent.parseItem(node);
+			type = AbstractEvent.parseString(data, "type");
+			id = AbstractEvent.parseInt(data, "id");
+		}
+		protected Update(Parcel parcel) {
+			super(parcel);
+			audio = parcel.readInt() == 1;
+			type = parcel.readString();
+			id = parcel.readInt();
+		}
+		@Override
+		public String toString() {
+			return 	"UPDATE: " + type + "(" + id + ")" + (audio ? " in audio library." : " in video library.");
+		}
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+		@Override
+		public void writeToParcel(Parcel parcel, int flags) {
+			super.writeToParcel(parcel, flags);
+			parcel.writeInt(audio ? 1 : 0);
+			parcel.writeString(type);
+			parcel.writeInt(id);
+		}
+		public static final Parcelable.Creator<Update> CREATOR = new Parcelable.Creator<Update>() {
+			@Override
+			public Update createFromParcel(Parcel parcel) {
+				return new Update(parcel);
+			}
+			@Override
+			public Update[] newArray(int n) {
+				return new Update[n];
+			}
+		};
+		@Override
+		public int getId() {
+			return ID;
+		}
+	}
+	
+	/**
+	 * An item has been removed from the library.
+	 */
+	public static class Remove extends AbstractEvent {
+		public final static int ID = 0x22;
+		public final static String VIDEO_METHOD = "VideoLibrary.OnRemove";
+		public final static String AUDIO_METHOD = "AudioLibrary.OnRemove";
+		public final boolean audio;
+		public final String type;
+		public final int id;
+		public Remove(ObjectNode node, boolean audio) {
+			super(node);
+			this.audio = audio;
+			final ObjectNode data = LibraryEvent.parseItem(node);
+			type = AbstractEvent.parseString(data, "type");
+			id = AbstractEvent.parseInt(data, "id");
+		}
+		protected Remove(Parcel parcel) {
+			super(parcel);
+			audio = parcel.readInt() == 1;
+			type = parcel.readString();
+			id = parcel.readInt();
+		}
+		@Override
+		public String toString() {
+			return 	"REMOVE: " + type + "(" + id + ")" + (audio ? " in audio library." : " in video library.");
+		}
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+		@Override
+		public void writeToParcel(Parcel parcel, int flags) {
+			super.writeToParcel(parcel, flags);
+			parcel.writeInt(audio ? 1 : 0);
+			parcel.writeString(type);
+			parcel.writeInt(id);
+		}
+		public static final Parcelable.Creator<Remove> CREATOR = new Parcelable.Creator<Remove>() {
+			@Override
+			public Remove createFromParcel(Parcel parcel) {
+				return new Remove(parcel);
+			}
+			@Override
+			public Remove[] newArray(int n) {
+				return new Remove[n];
+			}
+		};
+		@Override
+		public int getId() {
+			return ID;
+		}
+	}
+	
+	/**
+	 * A scan of the library has been finished.
+	 */
+	public static class ScanFinished extends AbstractEvent {
+		public final static int ID = 0x23;
+		public final static String VIDEO_METHOD = "VideoLibrary.OnScanFinished";
+		public final static String AUDIO_METHOD = "AudioLibrary.OnScanFinished";
+		public final boolean audio;
+		public ScanFinished(ObjectNode node, boolean audio) {
+			super(node);
+			this.audio = audio;
+		}
+		protected ScanFinished(Parcel parcel) {
+			super(parcel);
+			audio = parcel.readInt() == 1;
+		}
+		@Override
+		public String toString() {
+			return 	"SCANFINISHED: " + (audio ? "audio library." : "video library.");
+		}
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+		@Override
+		public void writeToParcel(Parcel parcel, int flags) {
+			super.writeToParcel(parcel, flags);
+			parcel.writeInt(audio ? 1 : 0);
+		}
+		public static final Parcelable.Creator<ScanFinished> CREATOR = new Parcelable.Creator<ScanFinished>() {
+			@Override
+			public ScanFinished createFromParcel(Parcel parcel) {
+				return new ScanFinished(parcel);
+			}
+			@Override
+			public ScanFinished[] newArray(int n) {
+				return new ScanFinished[n];
+			}
+		};
+		@Override
+		public int getId() {
+			return ID;
+		}
+	}
+	
+	/**
+	 * A clean of the library has been finished.
+	 */
+	public static class CleanFinished extends AbstractEvent {
+		public final static int ID = 0x24;
+		public final static String VIDEO_METHOD = "VideoLibrary.OnCleanFinished";
+		public final static String AUDIO_METHOD = "AudioLibrary.OnCleanFinished";
+		public final boolean audio;
+		public CleanFinished(ObjectNode node, boolean audio) {
+			super(node);
+			this.audio = audio;
+		}
+		protected CleanFinished(Parcel parcel) {
+			super(parcel);
+			audio = parcel.readInt() == 1;
+		}
+		@Override
+		public String toString() {
+			return 	"CLEANFINISHED: " + (audio ? "audio library." : "video library.");
+		}
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+		@Override
+		public void writeToParcel(Parcel parcel, int flags) {
+			super.writeToParcel(parcel, flags);
+			parcel.writeInt(audio ? 1 : 0);
+		}
+		public static final Parcelable.Creator<CleanFinished> CREATOR = new Parcelable.Creator<CleanFinished>() {
+			@Override
+			public CleanFinished createFromParcel(Parcel parcel) {
+				return new CleanFinished(parcel);
+			}
+			@Override
+			public CleanFinished[] newArray(int n) {
+				return new CleanFinished[n];
+			}
+		};
+		@Override
+		public int getId() {
+			return ID;
+		}
+	}
+	
+	/**
+	 * Item of an update or remove : data itself with recent json-rpc, or its
+	 * "item" member with older ones.
+	 * @param node Params of the notification
+	 * @return Item with type and id, empty if none
+	 */
+	private static ObjectNode parseItem(ObjectNode node) {
+		final ObjectNode data = node.has("data") && node.get("data").isObject()
+				? (ObjectNode)node.get("data") : node.objectNode();
+		if (data.has("item") && data.get("item").isObject()) {
+			return (ObjectNode)data.get("item");
+		}
+		return data;
+	}
+}
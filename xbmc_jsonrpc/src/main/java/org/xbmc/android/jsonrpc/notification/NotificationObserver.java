@@ -0,0 +1,154 @@
+/*
+ *      Copyright (C) 2005-2015 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.jsonrpc.notification;
+
+/**
+ *  Typed callback of all notifications, where not every type of notification
+ *  needs to be implemented. Notifications are handed over by
+ *  {@link #onEvent(AbstractEvent)}, switching on their id.
+ *  
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ */
+public abstract class NotificationObserver {
+	
+	/**
+	 * Hand over a notification to its typed callback.
+	 * @param event Notification, as parsed by {@link AbstractEvent#parse}
+	 */
+	public final void onEvent(AbstractEvent event) {
+		switch (event.getId()) {
+			case PlayerEvent.Play.ID:
+				onPlay((PlayerEvent.Play) event);
+				break;
+			case PlayerEvent.Pause.ID:
+				onPause((PlayerEvent.Pause) event);
+				break;
+			case PlayerEvent.Stop.ID:
+				onStop((PlayerEvent.Stop) event);
+				break;
+			case PlayerEvent.SpeedChanged.ID:
+				onSpeedChanged((PlayerEvent.SpeedChanged) event);
+				break;
+			case PlayerEvent.Seek.ID:
+				onSeek((PlayerEvent.Seek) event);
+				break;
+			case SystemEvent.Quit.ID:
+				onQuit((SystemEvent.Quit) event);
+				break;
+			case SystemEvent.Restart.ID:
+				onRestart((SystemEvent.Restart) event);
+				break;
+			case SystemEvent.Wake.ID:
+				onWake((SystemEvent.Wake) event);
+				break;
+			case SystemEvent.Sleep.ID:
+				onSleep((SystemEvent.Sleep) event);
+				break;
+			case SystemEvent.LowBattery.ID:
+				onLowBattery((SystemEvent.LowBattery) event);
+				break;
+			case LibraryEvent.Update.ID:
+				onLibraryUpdate((LibraryEvent.Update) event);
+				break;
+			case LibraryEvent.Remove.ID:
+				onLibraryRemove((LibraryEvent.Remove) event);
+				break;
+			case LibraryEvent.ScanFinished.ID:
+				onLibraryScanFinished((LibraryEvent.ScanFinished) event);
+				break;
+			case LibraryEvent.CleanFinished.ID:
+				onLibraryCleanFinished((LibraryEvent.CleanFinished) event);
+				break;
+			case ApplicationEvent.VolumeChanged.ID:
+				onVolumeChanged((ApplicationEvent.VolumeChanged) event);
+				break;
+			case GUIEvent.Screensaver.ID:
+				onScreensaver((GUIEvent.Screensaver) event);
+				break;
+			case GUIEvent.Dpms.ID:
+				onDpms((GUIEvent.Dpms) event);
+				break;
+			case PlaylistEvent.Add.ID:
+				onPlaylistAdd((PlaylistEvent.Add) event);
+				break;
+			case PlaylistEvent.Remove.ID:
+				onPlaylistRemove((PlaylistEvent.Remove) event);
+				break;
+			case PlaylistEvent.Clear.ID:
+				onPlaylistClear((PlaylistEvent.Clear) event);
+				break;
+			case InputEvent.InputRequested.ID:
+				onInputRequested((InputEvent.InputRequested) event);
+				break;
+			case InputEvent.InputFinished.ID:
+				onInputFinished((InputEvent.InputFinished) event);
+				break;
+			default:
+				break;
+		}
+	}
+	
+	public void onPlay(PlayerEvent.Play notification) {
+	}
+	public void onPause(PlayerEvent.Pause notification) {
+	}
+	public void onStop(PlayerEvent.Stop notification) {
+	}
+	public void onSpeedChanged(PlayerEvent.SpeedChanged notification) {
+	}
+	public void onSeek(PlayerEvent.Seek notification) {
+	}
+	public void onQuit(SystemEvent.Quit notification) {
+	}
+	public void onRestart(SystemEvent.Restart notification) {
+	}
+	public void onWake(SystemEvent.Wake notification) {
+	}
+	public void onSleep(SystemEvent.Sleep notification) {
+	}
+	public void onLowBattery(SystemEvent.LowBattery notification) {
+	}
+	public void onLibraryUpdate(LibraryEvent.Update notification) {
+	}
+	public void onLibraryRemove(LibraryEvent.Remove notification) {
+	}
+	public void onLibraryScanFinished(LibraryEvent.ScanFinished notification) {
+	}
+	public void onLibraryCleanFinished(LibraryEvent.CleanFinished notification) {
+	}
+	public void onVolumeChanged(ApplicationEvent.VolumeChanged notification) {
+	}
+	public void onScreensaver(GUIEvent.Screensaver notification) {
+	}
+	public void onDpms(GUIEvent.Dpms notification) {
+	}
+	public void onPlaylistAdd(PlaylistEvent.Add notification) {
+	}
+	public void onPlaylistRemove(PlaylistEvent.Remove notification) {
+	}
+	public void onPlaylistClear(PlaylistEvent.Clear notification) {
+	}
+	public void onInputRequested(InputEvent.InputRequested notification) {
+	}
+	public void onInputFinished(InputEvent.InputFinished notification) {
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ *      Copyright (C) 2005-2015 Team XBMC
+ *      http://xbmc.org
+ *
+ *  This Program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2, or (at your option)
+ *  any later version.
+ *
+ *  This Program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with XBMC Remote; see the file license.  If not, write to
+ *  the Free Software Foundation, 675 Mass Ave, Cambridge, MA 02139, USA.
+ *  http://www.gnu.org/copyleft/gpl.html
+ *
+ */
+
+package org.xbmc.android.jsonrpc.notification;
+
+import org.codehaus.jackson.node.ObjectNode;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Parses Playlist.* events.
+ * 
+ * @author Erwan Le Huitouze <erwan.lehuitouze@gmail.com>
+ */
+public class PlaylistEvent {
+	
+	/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
+	 *  notifications: https://github.com/xbmc/xbmc/blob/master/xbmc/interfaces/json-rpc/notifications.json
+	 * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+	/**
+	 * An item has been added to a playlist.
+	 */
+	public static class Add extends AbstractEvent {
+		public final static int ID = 0x51;
+		public final static String METHOD = "Playlist.OnAdd";
+		public final int playlistId;
+		public final int position;
+		public final String type;
+		public final int id;
+		public Add(ObjectNode node) {
+			super(node);
+			final ObjectNode data = AbstractEvent.parseData(node);
+			final ObjectNode item = AbstractEvent.parseObject(data, "item");
+			playlistId = AbstractEvent.parseInt(data, "playlistid");
+			position = AbstractEvent.parseInt(data, "position");
+			type = AbstractEvent.parseString(item, "type");
+			id = AbstractEvent.parseInt(item, "id");
+		}
+		protected Add(Parcel parcel) {
+			super(parcel);
+			playlistId = parcel.readInt();
+			position = parcel.readInt();
+			type = parcel.readString();
+			id = parcel.readInt();
+		}
+		@Override
+		public String toString() {
+			return 	"ADD: " + type + "(" + id + ") to playlist " + playlistId + " at " + position + ".";
+		}
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+		@Override
+		public void writeToParcel(Parcel parcel, int flags) {
+			super.writeToParcel(parcel, flags);
+			parcel.writeInt(playlistId);
+			parcel.writeInt(position);
+			parcel.writeString(type);
+			parcel.writeInt(id);
+		}
+		public static final Parcelable.Creator<Add> CREATOR = new Parcelable.Creator<Add>() {
+			@Override
+			public Add createFromParcel(Parcel parcel) {
+				return new Add(parcel);
+			}
+			@Override
+			public Add[] newArray(int n) {
+				return new Add[n];
+			}
+		};
+		@Override
+		public int getId() {
+			return ID;
+		}
+	}
+	
+	/**
+	 * An item has been removed from a playlist.
+	 */
+	public static class Remove extends AbstractEvent {
+		public final static int ID = 0x52;
+		public final static String METHOD = "Playlist.OnRemove";
+		public final int playlistId;
+		public final int position;
+		public Remove(ObjectNode node) {
+			super(node);
+			final ObjectNode data = AbstractEvent.parseData(node);
+			playlistId = AbstractEvent.parseInt(data, "playlistid");
+			position = AbstractEvent.parseInt(data, "position");
+		}
+		protected Remove(Parcel parcel) {
+			super(parcel);
+			playlistId = parcel.readInt();
+			position = parcel.readInt();
+		}
+		@Override
+		public String toString() {
+			return 	"REMOVE: position " + position + " from playlist " + playlistId + ".";
+		}
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+		@Override
+		public void writeToParcel(Parcel parcel, int flags) {
+			super.writeToParcel(parcel, flags);
+			parcel.writeInt(playlistId);
+			parcel.writeInt(position);
+		}
+		public static final Parcelable.Creator<Remove> CREATOR = new Parcelable.Creator<Remove>() {
+			@Override
+			public Remove createFromParcel(Parcel parcel) {
+				return new Remove(parcel);
+			}
+			@Override
+			public Remove[] newArray(int n) {
+				return new Remove[n];
+			}
+		};
+		@Override
+		public int getId() {
+			return ID;
+		}
+	}
+	
+	/**
+	 * A playlist has been cleared.
+	 */
+	public static class Clear extends AbstractEvent {
+		public final static int ID = 0x53;
+		public final static String METHOD = "Playlist.OnClear";
+		public final int playlistId;
+		public Clear(ObjectNode node) {
+			super(node);
+			final ObjectNode data = AbstractEvent.parseData(node);
+			playlistId = AbstractEvent.parseInt(data, "playlistid");
+		}
+		protected Clear(Parcel parcel) {
+			super(parcel);
+			playlistId = parcel.readInt();
+		}
+		@Override
+		public String toString() {
+			return 	"CLEAR: playlist " + playlistId + ".";
+		}
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+		@Override
+		public void writeToParcel(Parcel parcel, int flags) {
+			super.writeToParcel(parcel, flags);
+			parcel.writeInt(playlistId);
+		}
+		public static final Parcelable.Creator<Clear> CREATOR = new Parcelable.Creator<Clear>() {
+			@Override
+			public Clear createFromParcel(Parcel parcel) {
+				return new Clear(parcel);
+			}
+			@Override
+			public Clear[] newArray(int n) {
+				return new Clear[n];
+			}
+		};
+		@Override
+		public int getId() {
+			return ID;
+		}
+	}
+}
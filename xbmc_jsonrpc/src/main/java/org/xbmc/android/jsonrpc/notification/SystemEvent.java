@@ -196,4 +196,44 @@ public class SystemEvent {
 			return ID;
 		}
 	}
+	
+	/**
+	 * The system will be suspended.
+	 */
+	public static class Sleep extends AbstractEvent {
+		public final static int ID = 0x15;
+		public final static String METHOD = "System.OnSleep";
+		public Sleep(ObjectNode node) {
+			super(node);
+		}
+		public Sleep(Parcel parcel) {
+			super(parcel);
+		}
+		@Override
+		public String toString() {
+			return 	"SLEEP";
+		}
+		@Override
+		public int describeContents() {
+			return 0;
+		}
+		@Override
+		public void writeToParcel(Parcel parcel, int flags) {
+			super.writeToParcel(parcel, flags);
+		}
+		public static final Parcelable.Creator<Sleep> CREATOR = new Parcelable.Creator<Sleep>() {
+			@Override
+			public Sleep createFromParcel(Parcel parcel) {
+				return new Sleep(parcel);
+			}
+			@Override
+			public Sleep[] newArray(int n) {
+				return new Sleep[n];
+			}
+		};
+		@Override
+		public int getId() {
+			return ID;
+		}
+	}
 }